@@ -0,0 +1,25 @@
+package com.qualcomm.ftcrobotcontroller.opmodes;
+
+public class ExampleAutonomous extends BaseOpMode {
+
+    @Override
+    public void loop() {
+        // Drive forward, turn in place, drive forward again, then stop. Timing only, no sensors.
+        if (time < 2) {
+            setDrivePower(0.8, 0.8);
+        } else if (time < 3) {
+            setDrivePower(0.5, -0.5);
+        } else if (time < 4.5) {
+            setDrivePower(0.8, 0.8);
+        } else {
+            setDrivePower(0, 0);
+        }
+    }
+
+    private void setDrivePower(double left, double right) {
+        leftFront.setPower(left);
+        leftBack.setPower(left);
+        rightFront.setPower(right);
+        rightBack.setPower(right);
+    }
+}
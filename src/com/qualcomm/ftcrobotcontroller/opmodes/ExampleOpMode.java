@@ -1,13 +1,13 @@
 package com.qualcomm.ftcrobotcontroller.opmodes;
 
+import com.qualcomm.robotcore.hardware.Gamepad;
+
 public class ExampleOpMode extends BaseOpMode {
-    float driveModeButton, driveControlStickX, driveControlStickY,
-            tankModeButton, tankLeftControlStickY, tankRightControlStickY,
-            splitModeButton, splitControlStickX, splitControlStickY;
+    float driveControlStickX, driveControlStickY,
+            tankLeftControlStickY, tankRightControlStickY,
+            splitControlStickX, splitControlStickY;
 
     private State state = State.DRIVE;
-    private boolean climberButtonPressed = false, climberHolderDown = false, lCPressed = false, rCPressed = false, leftClimberDown = false, rightClimberDown = false,
-            lHPressed = false, rHPressed = false, lHUp = false, rHUp = false;
 
 
     @Override
@@ -18,24 +18,21 @@ public class ExampleOpMode extends BaseOpMode {
     @Override
     public void loop() {   	
         // Define control variables
-        driveModeButton = gamepad1.dpad_left ? 1 : 0;
         driveControlStickX = gamepad1.left_stick_x;
         driveControlStickY = gamepad1.left_stick_y;
 
-        tankModeButton = gamepad1.dpad_up ? 1 : 0;
         tankLeftControlStickY = gamepad1.left_stick_y;
         tankRightControlStickY = gamepad1.right_stick_y;
 
-        splitModeButton = gamepad1.dpad_right ? 1 : 0;
         splitControlStickX = gamepad1.right_stick_x;
         splitControlStickY = gamepad1.left_stick_y;
 
-        // Switch control state if a corresponding button is pressed
-        if (driveModeButton >= 0.75)
+        // Switch control state when a corresponding button goes down
+        if (gamepad1.wasPressed(Gamepad.BUTTON_DPAD_LEFT))
             state = State.DRIVE;
-        if (tankModeButton >= 0.75)
+        if (gamepad1.wasPressed(Gamepad.BUTTON_DPAD_UP))
             state = State.TANK;
-        if (splitModeButton >= 0.75)
+        if (gamepad1.wasPressed(Gamepad.BUTTON_DPAD_RIGHT))
             state = State.SPLIT;
 
         switch (state) {
@@ -65,10 +62,10 @@ public class ExampleOpMode extends BaseOpMode {
                 // SPLIT mode
                 // Very similar to drive mode, except that two seperate control sticks control the forward/backward axis and the left/right axis..
                 float splitLeftPower = -splitControlStickY - splitControlStickX;
-                float splitRightPower = -splitControlStickY + driveControlStickX;
+                float splitRightPower = -splitControlStickY + splitControlStickX;
 
                 splitLeftPower = Math.max(Math.min(1, splitLeftPower), -1);
-                splitRightPower = Math.max(Math.min(1, splitLeftPower), -1);
+                splitRightPower = Math.max(Math.min(1, splitRightPower), -1);
 
                 leftFront.setPower(splitLeftPower);
                 leftBack.setPower(splitLeftPower);
@@ -0,0 +1,24 @@
+package com.qualcomm.robotcore.hardware;
+
+/**
+ * One image from a {@link Webcam}, as packed ARGB pixels in rows from the top left. Frames are recycled once the
+ * pipeline returns, so a pipeline must copy anything it wants to keep.
+ */
+public class CameraFrame {
+
+	public final int width, height;
+	public final int[] pixels;
+	public long timestamp;
+	public long frameNumber;
+
+	public CameraFrame(final int width, final int height) {
+		this.width = width;
+		this.height = height;
+		pixels = new int[width * height];
+	}
+
+	public int getPixel(final int x, final int y) {
+		return pixels[y * width + x];
+	}
+
+}
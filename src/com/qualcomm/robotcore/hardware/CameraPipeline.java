@@ -0,0 +1,13 @@
+package com.qualcomm.robotcore.hardware;
+
+/**
+ * Processes frames from a {@link Webcam} on the camera's own thread, the way vision pipelines do on the robot. Results
+ * that the op mode reads should be stored in volatile fields or otherwise published safely.
+ */
+public abstract class CameraPipeline {
+
+	public void init(final CameraFrame firstFrame) {}
+
+	public abstract void processFrame(CameraFrame frame);
+
+}
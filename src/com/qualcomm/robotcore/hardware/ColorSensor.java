@@ -0,0 +1,12 @@
+package com.qualcomm.robotcore.hardware;
+
+public interface ColorSensor {
+
+	public int red();
+	public int green();
+	public int blue();
+	public int alpha();
+	public int argb();
+	public void enableLed(boolean enable);
+	
+}
@@ -0,0 +1,20 @@
+package com.qualcomm.robotcore.hardware;
+
+/**
+ * A set of unpowered tracking wheels on encoders, sampled faster than the op mode loops. Samples queue up between
+ * loops; drain them at the top of every {@code loop()} with {@link #poll} until it returns false.
+ */
+public interface DeadWheelOdometry {
+
+	public int getPodCount();
+
+	/** Samples per second. */
+	public double getSampleRate();
+
+	/** Copies the oldest unread sample into {@code reading} and returns true, or returns false if there is none. */
+	public boolean poll(OdometryReading reading);
+
+	/** Samples thrown away because the op mode did not drain them in time. */
+	public long getDroppedCount();
+
+}
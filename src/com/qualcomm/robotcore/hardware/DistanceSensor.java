@@ -0,0 +1,9 @@
+package com.qualcomm.robotcore.hardware;
+
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+
+public interface DistanceSensor {
+
+	public double getDistance(DistanceUnit unit);
+	
+}
@@ -6,6 +6,12 @@ import java.nio.ByteBuffer;
 import com.qualcomm.robotcore.util.Range;
 
 public class Gamepad {
+	// Button bits as packed on the wire and by getButtons()
+	public static final int BUTTON_LEFT_STICK = 0x4000, BUTTON_RIGHT_STICK = 0x2000;
+	public static final int BUTTON_DPAD_UP = 0x1000, BUTTON_DPAD_DOWN = 0x800, BUTTON_DPAD_LEFT = 0x400, BUTTON_DPAD_RIGHT = 0x200;
+	public static final int BUTTON_A = 0x100, BUTTON_B = 0x80, BUTTON_X = 0x40, BUTTON_Y = 0x20;
+	public static final int BUTTON_GUIDE = 0x10, BUTTON_START = 0x8, BUTTON_BACK = 0x4, BUTTON_LEFT_BUMPER = 0x2, BUTTON_RIGHT_BUMPER = 0x1;
+
 	public float left_stick_x = 0.0F;
 	public float left_stick_y = 0.0F;
 	public float right_stick_x = 0.0F;
@@ -35,6 +41,11 @@ public class Gamepad {
 
 	private final GamepadCallback callback;
 
+	// The state the callback last saw, edges not yet latched, and edges of the latest update()
+	private int seenButtons = 0;
+	private float seenLeftX, seenLeftY, seenRightX, seenRightY, seenLeftTrigger, seenRightTrigger;
+	private int pendingPressed = 0, pendingReleased = 0, pressed = 0, released = 0;
+
 	public Gamepad() {
 		this(null);
 	}
@@ -61,7 +72,80 @@ public class Gamepad {
 
 	public void update() {
 		timestamp = System.currentTimeMillis();
-		callCallback();
+		latch();
+	}
+
+	/**
+	 * Takes the current state as this update's: {@link #wasPressed} and {@link #wasReleased} report the buttons that
+	 * changed since the previous latch, and the callback is told if anything changed. {@link #update()} calls it;
+	 * code that sets the fields directly calls it once per loop instead.
+	 */
+	public void latch() {
+		detectChanges();
+		pressed = pendingPressed;
+		released = pendingReleased;
+		pendingPressed = 0;
+		pendingReleased = 0;
+	}
+
+	/** Forgets any edges, as if the current state had always been held. For restoring a saved state. */
+	public void clearEdges() {
+		seenButtons = getButtons();
+		seenLeftX = left_stick_x;
+		seenLeftY = left_stick_y;
+		seenRightX = right_stick_x;
+		seenRightY = right_stick_y;
+		seenLeftTrigger = left_trigger;
+		seenRightTrigger = right_trigger;
+		pendingPressed = pendingReleased = pressed = released = 0;
+	}
+
+	/** Whether any of the {@code BUTTON_} bits went down before the latest {@link #latch()}. */
+	public boolean wasPressed(final int buttons) {
+		return (pressed & buttons) != 0;
+	}
+
+	/** Whether any of the {@code BUTTON_} bits came up before the latest {@link #latch()}. */
+	public boolean wasReleased(final int buttons) {
+		return (released & buttons) != 0;
+	}
+
+	public int getButtons() {
+		int buttons = 0;
+		if (left_stick_button) buttons |= BUTTON_LEFT_STICK;
+		if (right_stick_button) buttons |= BUTTON_RIGHT_STICK;
+		if (dpad_up) buttons |= BUTTON_DPAD_UP;
+		if (dpad_down) buttons |= BUTTON_DPAD_DOWN;
+		if (dpad_left) buttons |= BUTTON_DPAD_LEFT;
+		if (dpad_right) buttons |= BUTTON_DPAD_RIGHT;
+		if (a) buttons |= BUTTON_A;
+		if (b) buttons |= BUTTON_B;
+		if (x) buttons |= BUTTON_X;
+		if (y) buttons |= BUTTON_Y;
+		if (guide) buttons |= BUTTON_GUIDE;
+		if (start) buttons |= BUTTON_START;
+		if (back) buttons |= BUTTON_BACK;
+		if (left_bumper) buttons |= BUTTON_LEFT_BUMPER;
+		if (right_bumper) buttons |= BUTTON_RIGHT_BUMPER;
+		return buttons;
+	}
+
+	public void setButtons(final int buttons) {
+		left_stick_button = (buttons & BUTTON_LEFT_STICK) != 0;
+		right_stick_button = (buttons & BUTTON_RIGHT_STICK) != 0;
+		dpad_up = (buttons & BUTTON_DPAD_UP) != 0;
+		dpad_down = (buttons & BUTTON_DPAD_DOWN) != 0;
+		dpad_left = (buttons & BUTTON_DPAD_LEFT) != 0;
+		dpad_right = (buttons & BUTTON_DPAD_RIGHT) != 0;
+		a = (buttons & BUTTON_A) != 0;
+		b = (buttons & BUTTON_B) != 0;
+		x = (buttons & BUTTON_X) != 0;
+		y = (buttons & BUTTON_Y) != 0;
+		guide = (buttons & BUTTON_GUIDE) != 0;
+		start = (buttons & BUTTON_START) != 0;
+		back = (buttons & BUTTON_BACK) != 0;
+		left_bumper = (buttons & BUTTON_LEFT_BUMPER) != 0;
+		right_bumper = (buttons & BUTTON_RIGHT_BUMPER) != 0;
 	}
 
 // public void update(final MotionEvent event) {
@@ -124,8 +208,6 @@ public class Gamepad {
 	public byte[] toByteArray() {
 		final ByteBuffer buffer = getWriteBuffer(42);
 		try {
-			int buttons = 0;
-
 			buffer.put((byte) 2);
 			buffer.putInt(id);
 			buffer.putLong(timestamp).array();
@@ -136,22 +218,7 @@ public class Gamepad {
 			buffer.putFloat(left_trigger).array();
 			buffer.putFloat(right_trigger).array();
 
-			buttons = (buttons << 1) + (left_stick_button ? 1 : 0);
-			buttons = (buttons << 1) + (right_stick_button ? 1 : 0);
-			buttons = (buttons << 1) + (dpad_up ? 1 : 0);
-			buttons = (buttons << 1) + (dpad_down ? 1 : 0);
-			buttons = (buttons << 1) + (dpad_left ? 1 : 0);
-			buttons = (buttons << 1) + (dpad_right ? 1 : 0);
-			buttons = (buttons << 1) + (a ? 1 : 0);
-			buttons = (buttons << 1) + (b ? 1 : 0);
-			buttons = (buttons << 1) + (x ? 1 : 0);
-			buttons = (buttons << 1) + (y ? 1 : 0);
-			buttons = (buttons << 1) + (guide ? 1 : 0);
-			buttons = (buttons << 1) + (start ? 1 : 0);
-			buttons = (buttons << 1) + (back ? 1 : 0);
-			buttons = (buttons << 1) + (left_bumper ? 1 : 0);
-			buttons = (buttons << 1) + (right_bumper ? 1 : 0);
-			buffer.putInt(buttons);
+			buffer.putInt(getButtons());
 
 			buffer.put(user);
 		} catch (final BufferOverflowException e) {}
@@ -160,10 +227,20 @@ public class Gamepad {
 	}
 
 	public void fromByteArray(final byte[] byteArray) {
-		final ByteBuffer byteBuffer = getReadBuffer(byteArray);
+		readPayload(getReadBuffer(byteArray));
+	}
 
-		int buttons = 0;
+	/**
+	 * Decodes a whole packet, header included, from the buffer's position without copying it out first. The
+	 * position is left after the packet.
+	 */
+	public void fromByteBuffer(final ByteBuffer buffer) {
+		buffer.position(buffer.position() + 3);
+		setSequenceNumber(buffer.getShort());
+		readPayload(buffer);
+	}
 
+	private void readPayload(final ByteBuffer byteBuffer) {
 		final byte version = byteBuffer.get();
 
 		if (version >= 1) {
@@ -176,29 +253,14 @@ public class Gamepad {
 			left_trigger = byteBuffer.getFloat();
 			right_trigger = byteBuffer.getFloat();
 
-			buttons = byteBuffer.getInt();
-			left_stick_button = (buttons & 0x4000) != 0;
-			right_stick_button = (buttons & 0x2000) != 0;
-			dpad_up = (buttons & 0x1000) != 0;
-			dpad_down = (buttons & 0x800) != 0;
-			dpad_left = (buttons & 0x400) != 0;
-			dpad_right = (buttons & 0x200) != 0;
-			a = (buttons & 0x100) != 0;
-			b = (buttons & 0x80) != 0;
-			x = (buttons & 0x40) != 0;
-			y = (buttons & 0x20) != 0;
-			guide = (buttons & 0x10) != 0;
-			start = (buttons & 0x8) != 0;
-			back = (buttons & 0x4) != 0;
-			left_bumper = (buttons & 0x2) != 0;
-			right_bumper = (buttons & 0x1) != 0;
+			setButtons(byteBuffer.getInt());
 		}
 
 		if (version >= 2) {
 			user = byteBuffer.get();
 		}
 
-		callCallback();
+		detectChanges();
 	}
 
 	public boolean atRest() {
@@ -249,6 +311,25 @@ public class Gamepad {
 		}
 	}
 
+	// Collects edges against the last state seen and calls back only if something moved
+	private void detectChanges() {
+		final int buttons = getButtons();
+		final int changed = buttons ^ seenButtons;
+		pendingPressed |= changed & buttons;
+		pendingReleased |= changed & ~buttons;
+
+		if (changed == 0 && left_stick_x == seenLeftX && left_stick_y == seenLeftY && right_stick_x == seenRightX && right_stick_y == seenRightY && left_trigger == seenLeftTrigger && right_trigger == seenRightTrigger) return;
+
+		seenButtons = buttons;
+		seenLeftX = left_stick_x;
+		seenLeftY = left_stick_y;
+		seenRightX = right_stick_x;
+		seenRightY = right_stick_y;
+		seenLeftTrigger = left_trigger;
+		seenRightTrigger = right_trigger;
+		callCallback();
+	}
+
 	protected void callCallback() {
 		if (callback != null) {
 			callback.gamepadChanged(this);
@@ -6,5 +6,11 @@ public class HardwareMap {
 
     public HashMap<String, DcMotor> dcMotor = new HashMap<>();
     public HashMap<String, Servo> servo = new HashMap<>();
+    public HashMap<String, DistanceSensor> distanceSensor = new HashMap<>();
+    public HashMap<String, ColorSensor> colorSensor = new HashMap<>();
+    public HashMap<String, TouchSensor> touchSensor = new HashMap<>();
+    public HashMap<String, Webcam> webcam = new HashMap<>();
+    public HashMap<String, VoltageSensor> voltageSensor = new HashMap<>();
+    public HashMap<String, DeadWheelOdometry> odometry = new HashMap<>();
     
 }
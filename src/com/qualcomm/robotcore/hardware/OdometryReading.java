@@ -0,0 +1,18 @@
+package com.qualcomm.robotcore.hardware;
+
+/**
+ * One sample from a {@link DeadWheelOdometry}: the encoder count of every pod at one instant, with the simulator's
+ * ground-truth pose at the same instant for checking localization against. Readings are meant to be reused.
+ */
+public class OdometryReading {
+
+	/** Seconds since the simulation started. */
+	public double time;
+	public final int[] counts;
+	public float trueX, trueY, trueHeading;
+
+	public OdometryReading(final int pods) {
+		counts = new int[pods];
+	}
+
+}
@@ -0,0 +1,8 @@
+package com.qualcomm.robotcore.hardware;
+
+public interface TouchSensor {
+
+	public double getValue();
+	public boolean isPressed();
+	
+}
@@ -0,0 +1,13 @@
+package com.qualcomm.robotcore.hardware;
+
+public interface Webcam {
+
+	public void setPipeline(CameraPipeline pipeline);
+	public void startStreaming();
+	public void stopStreaming();
+	public boolean isStreaming();
+	public int getFrameWidth();
+	public int getFrameHeight();
+	public float getFps();
+	
+}
@@ -0,0 +1,310 @@
+package com.qualcomm.simulator;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import com.qualcomm.ftcrobotcontroller.opmodes.ExampleAutonomous;
+import com.qualcomm.robotcore.eventloop.opmode.OpMode;
+
+/**
+ * Runs one op mode headless from many starting poses, many times each, with randomized wheel slip and motor variance,
+ * spread over every core. For each starting pose an unperturbed run is made first; perturbed runs are then judged
+ * against it by a {@link Criterion}, by default "ended within a few inches and degrees of where the nominal run
+ * ended".
+ */
+public class BatchEvaluator {
+
+	public interface Criterion {
+		public boolean isSuccess(Result nominal, Result run);
+	}
+
+	public static class Result {
+		public final float startX, startY, startRotation;
+		public float finalX, finalY, finalRotation;
+		public boolean success;
+
+		Result(final float startX, final float startY, final float startRotation) {
+			this.startX = startX;
+			this.startY = startY;
+			this.startRotation = startRotation;
+		}
+
+		public float getPositionError(final Result nominal) {
+			return (float) Math.hypot(finalX - nominal.finalX, finalY - nominal.finalY);
+		}
+
+		public float getRotationError(final Result nominal) {
+			return angleDifference(finalRotation, nominal.finalRotation);
+		}
+	}
+
+	public static class Summary {
+		public final Result nominal;
+		public final Result[] runs;
+		public final int successes;
+		public final float meanX, meanY, stdDevX, stdDevY, meanRotationError, stdDevRotationError;
+		public final float medianPositionError, p90PositionError, maxPositionError;
+
+		Summary(final Result nominal, final Result[] runs) {
+			this.nominal = nominal;
+			this.runs = runs;
+
+			int successes = 0;
+			double sumX = 0, sumY = 0, sumRotation = 0;
+			final float[] positionErrors = new float[runs.length];
+			for (int i = 0; i < runs.length; i++) {
+				if (runs[i].success) successes++;
+				sumX += runs[i].finalX;
+				sumY += runs[i].finalY;
+				sumRotation += runs[i].getRotationError(nominal);
+				positionErrors[i] = runs[i].getPositionError(nominal);
+			}
+			this.successes = successes;
+
+			final int n = Math.max(1, runs.length);
+			meanX = (float) (sumX / n);
+			meanY = (float) (sumY / n);
+			meanRotationError = (float) (sumRotation / n);
+
+			double varX = 0, varY = 0, varRotation = 0;
+			for (final Result run : runs) {
+				varX += (run.finalX - meanX) * (run.finalX - meanX);
+				varY += (run.finalY - meanY) * (run.finalY - meanY);
+				final float rotation = run.getRotationError(nominal) - meanRotationError;
+				varRotation += rotation * rotation;
+			}
+			stdDevX = (float) Math.sqrt(varX / n);
+			stdDevY = (float) Math.sqrt(varY / n);
+			stdDevRotationError = (float) Math.sqrt(varRotation / n);
+
+			Arrays.sort(positionErrors);
+			medianPositionError = percentile(positionErrors, 0.5f);
+			p90PositionError = percentile(positionErrors, 0.9f);
+			maxPositionError = positionErrors.length == 0 ? 0 : positionErrors[positionErrors.length - 1];
+		}
+
+		public float getSuccessRate() {
+			return runs.length == 0 ? 0 : (float) successes / runs.length;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("start (%5.1f, %5.1f, %5.1f)  success %5.1f%%  final x %6.2f +- %5.2f  y %6.2f +- %5.2f  heading err %6.2f +- %5.2f  pos err p50 %5.2f p90 %5.2f max %5.2f", nominal.startX, nominal.startY, nominal.startRotation, getSuccessRate() * 100, meanX, stdDevX, meanY, stdDevY, meanRotationError, stdDevRotationError, medianPositionError, p90PositionError, maxPositionError);
+		}
+
+		private static float percentile(final float[] sorted, final float p) {
+			return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+		}
+	}
+
+	private final Supplier<? extends OpMode> opModes;
+	private final ArrayList<float[]> startPoses = new ArrayList<float[]>();
+
+	private double duration = 30, timeStep = 1d / 60, physicsRate = Simulation.DEFAULT_PHYSICS_RATE;
+	private int runsPerPose = 100;
+	private float maxWheelSlip = 0.1f, motorVariance = 0.05f;
+	private long seed = 4654;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private Criterion criterion = withinTolerance(3f, 5f);
+	private CoverageMap coverage;
+
+	public BatchEvaluator(final Supplier<? extends OpMode> opModes) {
+		this.opModes = opModes;
+	}
+
+	public BatchEvaluator addStartPose(final float x, final float y, final float rotation) {
+		startPoses.add(new float[] {x, y, rotation});
+		return this;
+	}
+
+	/** Adds every combination of {@code nx} x positions, {@code ny} y positions and the given rotations. */
+	public BatchEvaluator addStartGrid(final float minX, final float maxX, final int nx, final float minY, final float maxY, final int ny, final float... rotations) {
+		for (int i = 0; i < nx; i++) {
+			for (int j = 0; j < ny; j++) {
+				for (final float rotation : rotations) {
+					addStartPose(nx == 1 ? minX : minX + (maxX - minX) * i / (nx - 1), ny == 1 ? minY : minY + (maxY - minY) * j / (ny - 1), rotation);
+				}
+			}
+		}
+
+		return this;
+	}
+
+	public BatchEvaluator setDuration(final double seconds) {
+		duration = seconds;
+		return this;
+	}
+
+	public BatchEvaluator setTimeStep(final double seconds) {
+		timeStep = seconds;
+		return this;
+	}
+
+	/** See {@link Simulation#setPhysicsRate}. */
+	public BatchEvaluator setPhysicsRate(final double rate) {
+		if (rate <= 0) throw new IllegalArgumentException("rate must be positive");
+
+		physicsRate = rate;
+		return this;
+	}
+
+	public BatchEvaluator setRunsPerPose(final int runs) {
+		runsPerPose = runs;
+		return this;
+	}
+
+	/** Each run draws its slip limit uniformly from {@code [0, maxSlip]}; see {@link Simulation#setWheelSlip}. */
+	public BatchEvaluator setMaxWheelSlip(final float maxSlip) {
+		maxWheelSlip = maxSlip;
+		return this;
+	}
+
+	/** Standard deviation of each motor's gain around 1. */
+	public BatchEvaluator setMotorVariance(final float variance) {
+		motorVariance = variance;
+		return this;
+	}
+
+	public BatchEvaluator setSeed(final long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	public BatchEvaluator setThreads(final int threads) {
+		this.threads = threads;
+		return this;
+	}
+
+	public BatchEvaluator setCriterion(final Criterion criterion) {
+		this.criterion = criterion;
+		return this;
+	}
+
+	/** Every run, nominal and perturbed, adds where its robot went to {@code map}. */
+	public BatchEvaluator setCoverage(final CoverageMap map) {
+		coverage = map;
+		return this;
+	}
+
+	public static Criterion withinTolerance(final float inches, final float degrees) {
+		return (nominal, run) -> run.getPositionError(nominal) <= inches && Math.abs(run.getRotationError(nominal)) <= degrees;
+	}
+
+	public Summary[] run() throws InterruptedException {
+		final int poses = startPoses.size();
+		final Result[] nominals = new Result[poses];
+		final Result[][] runs = new Result[poses][runsPerPose];
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int p = 0; p < poses; p++) {
+				final int pose = p;
+				futures.add(executor.submit(() -> {
+					nominals[pose] = simulate(startPoses.get(pose), 0f, null);
+				}));
+			}
+			waitFor(futures);
+
+			futures.clear();
+			for (int p = 0; p < poses; p++) {
+				for (int r = 0; r < runsPerPose; r++) {
+					final int pose = p, run = r;
+					futures.add(executor.submit(() -> {
+						// Seeded per run so a batch gives the same answer however the runs are scheduled
+						final Random random = new Random(seed * 31 + pose * 1000003L + run);
+						final Result result = simulate(startPoses.get(pose), random.nextFloat() * maxWheelSlip, random);
+						result.success = criterion.isSuccess(nominals[pose], result);
+						runs[pose][run] = result;
+					}));
+				}
+			}
+			waitFor(futures);
+		} finally {
+			executor.shutdown();
+		}
+
+		final Summary[] summaries = new Summary[poses];
+		for (int p = 0; p < poses; p++) {
+			nominals[p].success = true;
+			summaries[p] = new Summary(nominals[p], runs[p]);
+		}
+
+		return summaries;
+	}
+
+	private Result simulate(final float[] pose, final float slip, final Random random) {
+		final Simulation simulation = new Simulation(opModes.get());
+		simulation.setPhysicsRate(physicsRate);
+		simulation.setRobotPose(pose[0], pose[1], pose[2]);
+		simulation.setCoverage(coverage);
+		if (random != null) {
+			if (slip > 0f) simulation.setWheelSlip(slip, random.nextLong());
+			for (final SimMotor motor : simulation.getMotors()) {
+				motor.setGain((float) (1 + random.nextGaussian() * motorVariance));
+			}
+		}
+
+		simulation.init();
+		final long steps = Math.round(duration / timeStep);
+		for (long i = 0; i < steps; i++) {
+			simulation.step(timeStep);
+		}
+		simulation.stop();
+
+		final Result result = new Result(pose[0], pose[1], pose[2]);
+		result.finalX = simulation.getRobotX();
+		result.finalY = simulation.getRobotY();
+		result.finalRotation = simulation.getRobotRotation();
+		return result;
+	}
+
+	private static void waitFor(final ArrayList<Future<?>> futures) throws InterruptedException {
+		for (final Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (final ExecutionException e) {
+				throw new IllegalStateException("simulation run failed", e.getCause());
+			}
+		}
+	}
+
+	static float angleDifference(final float a, final float b) {
+		float difference = (a - b) % 360f;
+		if (difference > 180f) difference -= 360f;
+		if (difference < -180f) difference += 360f;
+		return difference;
+	}
+
+	/** Optionally takes a file to write where the robots went, as a PNG or CSV {@link CoverageMap}. */
+	public static void main(final String[] args) throws InterruptedException, IOException {
+		final CoverageMap coverage = new CoverageMap();
+		// One physics step per tick, as the example was first timed at; 1 kHz physics takes about 60% longer
+		final BatchEvaluator evaluator = new BatchEvaluator(ExampleAutonomous::new).addStartGrid(24, 48, 3, 96, 120, 3, 90f).setDuration(6).setRunsPerPose(500).setPhysicsRate(60).setCoverage(coverage);
+
+		final long start = System.nanoTime();
+		final Summary[] summaries = evaluator.run();
+		final double seconds = (System.nanoTime() - start) / 1e9;
+
+		int runs = 0, successes = 0;
+		for (final Summary summary : summaries) {
+			System.out.println(summary);
+			runs += summary.runs.length;
+			successes += summary.successes;
+		}
+		System.out.println(String.format("%d runs in %.2fs, %.1f%% successful", runs, seconds, 100f * successes / Math.max(1, runs)));
+		if (args.length > 0) {
+			coverage.write(Paths.get(args[0]));
+			System.out.println(String.format("Coverage of %.0f robot-seconds written to %s", coverage.getTotalSeconds(), args[0]));
+		}
+	}
+
+}
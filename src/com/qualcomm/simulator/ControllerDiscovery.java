@@ -0,0 +1,219 @@
+package com.qualcomm.simulator;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.java.games.input.Controller;
+import net.java.games.input.Controller.Type;
+import net.java.games.input.ControllerEnvironment;
+
+/**
+ * Finds jinput controllers on a background thread and binds them to {@link ControllerGamepad}s, so loading the
+ * native libraries never holds up startup. Free gamepads take the first controllers found. Like a driver station,
+ * pressing start and A on a spare controller makes it gamepad1, start and B gamepad2.
+ *
+ * jinput lists controllers only once per environment, so picking up a controller plugged in later takes a
+ * {@link #rescan}, which builds a new environment and opens every input device again. Rescans only happen on request:
+ * each moves the bindings over to the new environment's controllers and closes the old ones, but jinput keeps a
+ * shutdown hook per environment, so they aren't free.
+ */
+public class ControllerDiscovery {
+
+	public static final long POLL_INTERVAL = 50;
+	// Held so the level sticks; jinput logs every plugin it loads, which is noise on every rescan
+	private static final Logger JINPUT_LOG = Logger.getLogger("net.java.games.input");
+
+	private final ControllerGamepad[] gamepads;
+	// Controllers found but not bound, only touched by the discovery thread
+	private final ArrayList<Controller> spare = new ArrayList<Controller>();
+	private volatile boolean running = false, rescanRequested = false;
+	private volatile int scans = 0;
+	// The environment the bound and spare controllers came from, only touched by the discovery thread
+	private ControllerEnvironment environment;
+
+	public ControllerDiscovery(final ControllerGamepad... gamepads) {
+		this.gamepads = gamepads;
+	}
+
+	public synchronized void start() {
+		if (running) return;
+
+		running = true;
+		final Thread thread = new Thread(this::run, "ControllerDiscovery");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public void stop() {
+		running = false;
+	}
+
+	/** Looks for controllers again, to pick up ones plugged in since the last scan. Safe to call from any thread. */
+	public void rescan() {
+		rescanRequested = true;
+	}
+
+	public int getScanCount() {
+		return scans;
+	}
+
+	/** Swaps the controllers of the first two gamepads. Safe to call from any thread. */
+	public synchronized void swap() {
+		if (gamepads.length < 2) return;
+
+		final Controller first = gamepads[0].getController();
+		gamepads[0].setController(gamepads[1].getController());
+		gamepads[1].setController(first);
+	}
+
+	/** Which controller each gamepad reads, for display. */
+	public String getBindings() {
+		final StringBuilder bindings = new StringBuilder();
+		for (int i = 0; i < gamepads.length; i++) {
+			final Controller controller = gamepads[i].getController();
+			if (i > 0) bindings.append(", ");
+			bindings.append("gamepad").append(i + 1).append(": ").append(controller == null ? "none" : controller.getName());
+		}
+		return bindings.toString();
+	}
+
+	private void run() {
+		while (running) {
+			if (environment == null || rescanRequested) {
+				rescanRequested = false;
+				scan();
+			}
+			pollSpare();
+
+			try {
+				Thread.sleep(POLL_INTERVAL);
+			} catch (final InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	private void scan() {
+		final ControllerEnvironment previous = environment;
+		if (previous == null) {
+			environment = ControllerEnvironment.getDefaultEnvironment();
+			JINPUT_LOG.setLevel(Level.WARNING);
+		} else {
+			environment = createEnvironment();
+		}
+		scans++;
+
+		final ArrayList<Controller> found = new ArrayList<Controller>();
+		for (final Controller controller : environment.getControllers()) {
+			if (controller.getType() != Type.GAMEPAD && controller.getType() != Type.STICK) continue;
+			if (controller.getComponents().length <= ControllerGamepad.HAT) continue;
+
+			found.add(controller);
+		}
+
+		spare.clear();
+		synchronized (this) {
+			// A controller already bound shows up again in a new environment as a different object, so each bound
+			// gamepad moves to the first new controller of the same name; one that is gone is unbound
+			final boolean[] moved = new boolean[gamepads.length];
+			for (int i = 0; i < gamepads.length; i++) {
+				final Controller controller = gamepads[i].getController();
+				if (controller == null) continue;
+
+				gamepads[i].setController(takeNamed(found, controller.getName()));
+				moved[i] = true;
+			}
+			for (int i = 0; i < gamepads.length; i++) {
+				if (!moved[i] && !found.isEmpty()) gamepads[i].setController(found.remove(0));
+			}
+		}
+		spare.addAll(found);
+
+		if (previous != null && previous != environment) release(previous);
+	}
+
+	private static Controller takeNamed(final ArrayList<Controller> controllers, final String name) {
+		for (int i = 0; i < controllers.size(); i++) {
+			if (controllers.get(i).getName().equals(name)) return controllers.remove(i);
+		}
+		return null;
+	}
+
+	private void pollSpare() {
+		for (int i = spare.size() - 1; i >= 0; i--) {
+			final Controller controller = spare.get(i);
+			if (!controller.poll()) {
+				spare.remove(i);
+				continue;
+			}
+
+			if (controller.getComponents()[ControllerGamepad.START].getPollData() != 1f) continue;
+			if (controller.getComponents()[ControllerGamepad.A].getPollData() == 1f) {
+				claim(0, controller);
+			} else if (controller.getComponents()[ControllerGamepad.B].getPollData() == 1f && gamepads.length > 1) {
+				claim(1, controller);
+			}
+		}
+	}
+
+	private synchronized void claim(final int gamepad, final Controller controller) {
+		spare.remove(controller);
+		final Controller previous = gamepads[gamepad].getController();
+		gamepads[gamepad].setController(controller);
+		if (previous != null) spare.add(previous);
+	}
+
+	// The default environment is a singleton that never rescans, so make a fresh one of the same class
+	private ControllerEnvironment createEnvironment() {
+		try {
+			final Constructor<? extends ControllerEnvironment> constructor = environment.getClass().getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return constructor.newInstance();
+		} catch (final ReflectiveOperationException | RuntimeException e) {
+			return environment;
+		}
+	}
+
+	/**
+	 * Closes the devices behind every controller of an environment that is no longer used. jinput has no public way to
+	 * do this, so it closes whatever device a controller holds in a field, as the plugins' own shutdown hooks do.
+	 */
+	private static void release(final ControllerEnvironment environment) {
+		for (final Controller controller : environment.getControllers()) {
+			release(controller);
+		}
+	}
+
+	private static void release(final Controller controller) {
+		for (final Controller child : controller.getControllers()) {
+			release(child);
+		}
+
+		for (Class<?> type = controller.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+			for (final Field field : type.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers())) continue;
+
+				try {
+					field.setAccessible(true);
+					final Object value = field.get(controller);
+					if (value instanceof Controller && value != controller) {
+						// Combined controllers wrap others without listing them as children
+						release((Controller) value);
+					} else if (value != null && field.getName().equals("device")) {
+						final Method close = value.getClass().getDeclaredMethod("close");
+						close.setAccessible(true);
+						close.invoke(value);
+					}
+				} catch (final ReflectiveOperationException | RuntimeException e) {
+					// Not a device, or one this jinput doesn't let go of; it is closed at exit instead
+				}
+			}
+		}
+	}
+
+}
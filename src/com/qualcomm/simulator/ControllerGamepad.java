@@ -5,9 +5,21 @@ import net.java.games.input.Controller;
 
 import com.qualcomm.robotcore.hardware.Gamepad;
 
+/**
+ * A gamepad read from a jinput controller. Without a controller it is a placeholder that stays at rest, so the
+ * simulation can start before {@link ControllerDiscovery} has found anything; a controller that stops answering is
+ * unbound the same way.
+ */
 public class ControllerGamepad extends Gamepad {
 
-	private final Controller controller;
+	// Component indices on the controllers this has been tried with
+	static final int A = 5, B = 6, START = 12, HAT = 15;
+
+	private volatile Controller controller;
+
+	public ControllerGamepad() {
+		this(null, null);
+	}
 
 	public ControllerGamepad(final Controller controller) {
 		this(controller, null);
@@ -19,21 +31,38 @@ public class ControllerGamepad extends Gamepad {
 		this.controller = controller;
 	}
 
+	public Controller getController() {
+		return controller;
+	}
+
+	/** Reads from {@code controller} from the next update on, or rests if it is null. Safe to call from any thread. */
+	public void setController(final Controller controller) {
+		this.controller = controller;
+	}
+
 	@Override
 	public void update() {
-		controller.poll();
-		a = controller.getComponents()[5].getPollData() == 1f;
-		b = controller.getComponents()[6].getPollData() == 1f;
+		final Controller controller = this.controller;
+		if (controller == null || !controller.poll()) {
+			// Unplugged: let go of everything rather than hold the last stick position
+			if (controller != null && this.controller == controller) this.controller = null;
+			rest();
+			super.update();
+			return;
+		}
+
+		a = controller.getComponents()[A].getPollData() == 1f;
+		b = controller.getComponents()[B].getPollData() == 1f;
 		x = controller.getComponents()[7].getPollData() == 1f;
 		y = controller.getComponents()[8].getPollData() == 1f;
 		left_bumper = controller.getComponents()[9].getPollData() == 1f;
 		right_bumper = controller.getComponents()[10].getPollData() == 1f;
 		back = controller.getComponents()[11].getPollData() == 1f;
-		start = controller.getComponents()[12].getPollData() == 1f; // TODO better
+		start = controller.getComponents()[START].getPollData() == 1f; // TODO better
 		left_stick_button = controller.getComponents()[13].getPollData() == 1f;
 		right_stick_button = controller.getComponents()[14].getPollData() == 1f;
 
-		final float hat = controller.getComponents()[15].getPollData();
+		final float hat = controller.getComponents()[HAT].getPollData();
 		dpad_left = hat == .875f || hat == 1f || hat == .125f;
 		dpad_right = hat == .375f || hat == .5f || hat == .675f;
 		dpad_up = hat == .125f || hat == .25f || hat == .375f;
@@ -51,4 +80,10 @@ public class ControllerGamepad extends Gamepad {
 		super.update();
 	}
 
+	private void rest() {
+		left_stick_x = left_stick_y = right_stick_x = right_stick_y = 0;
+		left_trigger = right_trigger = 0;
+		setButtons(0);
+	}
+
 }
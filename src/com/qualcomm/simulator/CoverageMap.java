@@ -0,0 +1,174 @@
+package com.qualcomm.simulator;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.imageio.ImageIO;
+
+/**
+ * How long robots have spent over each square of the field, summed over one run or thousands. Dwell time is kept in
+ * nanoseconds of simulated time per cell in an {@link AtomicLongArray}, so any number of simulations on any number of
+ * threads can share one map without locking; each adds to a cell only when its robot leaves it or a step ends.
+ *
+ * Attach a map with {@link Simulation#setCoverage}. Nothing is kept per sample, so the map is the same size after a
+ * second as after a season.
+ */
+public class CoverageMap {
+
+	public static final float DEFAULT_CELL_SIZE = 1f;
+
+	private final float cellSize;
+	private final int cells;
+	private final AtomicLongArray nanos;
+
+	public CoverageMap() {
+		this(DEFAULT_CELL_SIZE);
+	}
+
+	/** Square cells {@code cellSize} inches across, covering the whole field. */
+	public CoverageMap(final float cellSize) {
+		this.cellSize = cellSize;
+		cells = (int) Math.ceil(Field.SIZE / cellSize);
+		nanos = new AtomicLongArray(cells * cells);
+	}
+
+	/** The cell under a field position, or -1 off the field. */
+	public int getCell(final float x, final float y) {
+		if (!(x >= 0f && y >= 0f)) return -1;
+
+		final int column = (int) (x / cellSize), row = (int) (y / cellSize);
+		return column < cells && row < cells ? row * cells + column : -1;
+	}
+
+	public void add(final int cell, final long nanos) {
+		if (cell >= 0 && nanos != 0) this.nanos.addAndGet(cell, nanos);
+	}
+
+	/** Adds everything in {@code map}, which must have the same cells. */
+	public void merge(final CoverageMap map) {
+		if (map.cells != cells) throw new IllegalArgumentException(String.format("map has %d cells a side, this one has %d", map.cells, cells));
+
+		for (int i = 0; i < map.nanos.length(); i++) {
+			add(i, map.nanos.get(i));
+		}
+	}
+
+	public void clear() {
+		for (int i = 0; i < nanos.length(); i++) {
+			nanos.set(i, 0);
+		}
+	}
+
+	public float getCellSize() {
+		return cellSize;
+	}
+
+	/** Cells along each side of the field. */
+	public int getSize() {
+		return cells;
+	}
+
+	public double getSeconds(final int column, final int row) {
+		return nanos.get(row * cells + column) / 1e9;
+	}
+
+	public double getMaxSeconds() {
+		long max = 0;
+		for (int i = 0; i < nanos.length(); i++) {
+			max = Math.max(max, nanos.get(i));
+		}
+		return max / 1e9;
+	}
+
+	public double getTotalSeconds() {
+		long total = 0;
+		for (int i = 0; i < nanos.length(); i++) {
+			total += nanos.get(i);
+		}
+		return total / 1e9;
+	}
+
+	/** A new image one pixel per cell; see {@link #paint}. */
+	public BufferedImage createImage() {
+		final BufferedImage image = new BufferedImage(cells, cells, BufferedImage.TYPE_INT_ARGB);
+		paint(image, new int[cells * cells]);
+		return image;
+	}
+
+	/**
+	 * Paints the map into an image one pixel per cell, through {@code pixels}, which must hold a pixel per cell. Unvisited
+	 * cells are clear and the rest run from blue to red on a log scale, so a path driven once still shows beside a spot
+	 * where the robot sat for a minute.
+	 */
+	public void paint(final BufferedImage image, final int[] pixels) {
+		final double scale = Math.log1p(getMaxSeconds() * 1000);
+		for (int i = 0; i < pixels.length; i++) {
+			final long value = nanos.get(i);
+			pixels[i] = value == 0 || scale == 0 ? 0 : heat((float) (Math.log1p(value / 1e6) / scale));
+		}
+		image.setRGB(0, 0, cells, cells, pixels, 0, cells);
+	}
+
+	// Blue through cyan, green and yellow to red, mostly opaque
+	private static int heat(final float level) {
+		final float t = Math.max(0f, Math.min(1f, level)) * 4f;
+		final int segment = Math.min(3, (int) t);
+		final int ramp = (int) ((t - segment) * 255);
+		final int r, g, b;
+		switch (segment) {
+			case 0:
+				r = 0;
+				g = ramp;
+				b = 255;
+				break;
+			case 1:
+				r = 0;
+				g = 255;
+				b = 255 - ramp;
+				break;
+			case 2:
+				r = ramp;
+				g = 255;
+				b = 0;
+				break;
+			default:
+				r = 255;
+				g = 255 - ramp;
+				b = 0;
+				break;
+		}
+		return 0xC0000000 | r << 16 | g << 8 | b;
+	}
+
+	public void writePng(final Path file) throws IOException {
+		if (!ImageIO.write(createImage(), "png", file.toFile())) throw new IOException("no PNG writer");
+	}
+
+	/** Seconds per cell, one field row per line from the top, comma separated. */
+	public void writeCsv(final Path file) throws IOException {
+		try (final BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			for (int row = 0; row < cells; row++) {
+				for (int column = 0; column < cells; column++) {
+					if (column > 0) writer.write(',');
+					writer.write(Double.toString(getSeconds(column, row)));
+				}
+				writer.newLine();
+			}
+		}
+	}
+
+	/** Writes a PNG if the file name ends in {@code .png}, otherwise CSV. */
+	public void write(final Path file) throws IOException {
+		if (file.getFileName().toString().toLowerCase().endsWith(".png")) {
+			writePng(file);
+		} else {
+			writeCsv(file);
+		}
+	}
+
+}
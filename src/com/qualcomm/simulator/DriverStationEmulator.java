@@ -0,0 +1,121 @@
+package com.qualcomm.simulator;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+
+import net.java.games.input.Controller;
+import net.java.games.input.Controller.Type;
+import net.java.games.input.ControllerEnvironment;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+/**
+ * Sends gamepad packets to a {@link DriverStationReceiver} like a driver station would. Use {@link #send} from a
+ * script, or run it on its own to forward the controllers plugged into this machine.
+ */
+public class DriverStationEmulator implements Closeable {
+
+	public static final int SEND_RATE = 50;
+
+	private final DatagramChannel channel;
+	private final InetSocketAddress target;
+	private final short[] sequence = new short[3];
+
+	public DriverStationEmulator() throws IOException {
+		this(DriverStationReceiver.DEFAULT_PORT);
+	}
+
+	public DriverStationEmulator(final int port) throws IOException {
+		channel = DatagramChannel.open();
+		target = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+	}
+
+	/** Sends the gamepad's state, stamped now, as user 1 or 2. */
+	public void send(final Gamepad gamepad, final int user) throws IOException {
+		if (user != 1 && user != 2) throw new IllegalArgumentException("user must be 1 or 2: " + user);
+
+		gamepad.user = (byte) user;
+		gamepad.timestamp = System.currentTimeMillis();
+		gamepad.setSequenceNumber(++sequence[user]);
+		channel.send(ByteBuffer.wrap(gamepad.toByteArray()), target);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Forwards up to two local controllers at {@link #SEND_RATE} Hz. With none plugged in, reads lines such as
+	 * {@code 1 left_stick_y=-0.5 a=true} from standard input and keeps sending the gamepads they describe.
+	 */
+	public static void main(final String[] args) throws IOException, InterruptedException {
+		final DriverStationEmulator emulator = new DriverStationEmulator(args.length > 0 ? Integer.parseInt(args[0]) : DriverStationReceiver.DEFAULT_PORT);
+
+		final ArrayList<Gamepad> gamepads = new ArrayList<Gamepad>();
+		for (final Controller c : ControllerEnvironment.getDefaultEnvironment().getControllers()) {
+			if ((c.getType() == Type.GAMEPAD || c.getType() == Type.STICK) && gamepads.size() < 2) {
+				gamepads.add(new ControllerGamepad(c));
+			}
+		}
+
+		if (gamepads.isEmpty()) {
+			gamepads.add(new Gamepad());
+			gamepads.add(new Gamepad());
+
+			final Thread script = new Thread(() -> readScript(gamepads), "DriverStationScript");
+			script.setDaemon(true);
+			script.start();
+		}
+
+		System.out.println(String.format("Sending %d gamepad(s) to %s", gamepads.size(), emulator.target));
+		while (true) {
+			for (int i = 0; i < gamepads.size(); i++) {
+				final Gamepad gamepad = gamepads.get(i);
+				synchronized (gamepad) {
+					gamepad.update();
+					emulator.send(gamepad, i + 1);
+				}
+			}
+			Thread.sleep(1000 / SEND_RATE);
+		}
+	}
+
+	private static void readScript(final ArrayList<Gamepad> gamepads) {
+		try (final BufferedReader in = new BufferedReader(new InputStreamReader(System.in))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				final String[] words = line.trim().split("\\s+");
+				if (words.length < 2) continue;
+
+				try {
+					final Gamepad gamepad = gamepads.get(Integer.parseInt(words[0]) - 1);
+					synchronized (gamepad) {
+						for (int i = 1; i < words.length; i++) {
+							final String[] pair = words[i].split("=", 2);
+							final Field field = Gamepad.class.getField(pair[0]);
+							if (field.getType() == boolean.class) {
+								field.setBoolean(gamepad, Boolean.parseBoolean(pair[1]));
+							} else {
+								field.setFloat(gamepad, Float.parseFloat(pair[1]));
+							}
+						}
+					}
+				} catch (final ReflectiveOperationException | RuntimeException e) {
+					System.err.println("Can't apply '" + line + "': " + e);
+				}
+			}
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+package com.qualcomm.simulator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+/**
+ * Gamepad packets from a driver station, received on a loopback UDP port. Each packet is the SDK's own wire format
+ * from {@link Gamepad#toByteArray()}; its user byte says which gamepad it is for.
+ *
+ * Nothing runs in the background. Updating either gamepad drains every datagram waiting on the non-blocking channel
+ * into one direct buffer and decodes the fresh ones straight into the gamepad, so receiving allocates nothing. A packet
+ * whose sequence number is not newer than the last one applied for that gamepad arrived out of order and is dropped.
+ * The latency from a packet's timestamp to the loop that consumes it is recorded.
+ */
+public class DriverStationReceiver implements Closeable {
+
+	// The port the Robot Controller listens on for its driver station
+	public static final int DEFAULT_PORT = 20884;
+
+	static final int PACKET_SIZE = 47;
+	private static final int SEQUENCE_OFFSET = 3, USER_OFFSET = 46;
+
+	private final DatagramChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(512);
+	private final ReceivedGamepad gamepad1 = new ReceivedGamepad(), gamepad2 = new ReceivedGamepad();
+
+	private long received = 0, stale = 0, malformed = 0;
+	private long latencyCount = 0, latencySum = 0, latencyMax = 0;
+
+	public DriverStationReceiver() throws IOException {
+		this(DEFAULT_PORT);
+	}
+
+	public DriverStationReceiver(final int port) throws IOException {
+		channel = DatagramChannel.open();
+		channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		channel.configureBlocking(false);
+	}
+
+	public Gamepad getGamepad1() {
+		return gamepad1;
+	}
+
+	public Gamepad getGamepad2() {
+		return gamepad2;
+	}
+
+	/** Applies every packet waiting on the channel. Called by either gamepad's {@code update()}. */
+	public void poll() {
+		try {
+			while (true) {
+				buffer.clear();
+				if (channel.receive(buffer) == null) return;
+				buffer.flip();
+				received++;
+
+				if (buffer.remaining() < PACKET_SIZE) {
+					malformed++;
+					continue;
+				}
+
+				final byte user = buffer.get(USER_OFFSET);
+				final ReceivedGamepad gamepad = user == 2 ? gamepad2 : gamepad1;
+				final int sequence = buffer.getShort(SEQUENCE_OFFSET) & 0xFFFF;
+				// Sequence numbers wrap at 16 bits, so newer means ahead by less than half the range
+				if (gamepad.hasSequence && (short) (sequence - gamepad.sequence) <= 0) {
+					stale++;
+					continue;
+				}
+
+				gamepad.hasSequence = true;
+				gamepad.sequence = sequence;
+				gamepad.fromByteBuffer(buffer);
+
+				final long latency = Math.max(0, System.currentTimeMillis() - gamepad.timestamp);
+				latencyCount++;
+				latencySum += latency;
+				latencyMax = Math.max(latencyMax, latency);
+			}
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public long getReceivedCount() {
+		return received;
+	}
+
+	public long getStaleCount() {
+		return stale;
+	}
+
+	/** Mean milliseconds from a packet's timestamp to the loop that consumed it. */
+	public double getMeanLatency() {
+		return latencyCount == 0 ? 0 : (double) latencySum / latencyCount;
+	}
+
+	public long getMaxLatency() {
+		return latencyMax;
+	}
+
+	public String getReport() {
+		return String.format("Driver station packets: %d received, %d applied, %d stale, %d malformed, latency mean %.2f ms max %d ms%n", received, latencyCount, stale, malformed, getMeanLatency(), latencyMax);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private class ReceivedGamepad extends Gamepad {
+
+		private boolean hasSequence = false;
+		private int sequence;
+
+		// Keeps the packet's timestamp rather than stamping the time of the update
+		@Override
+		public void update() {
+			poll();
+			latch();
+		}
+
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.qualcomm.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import com.qualcomm.robotcore.hardware.DcMotor.ZeroPowerBehavior;
+import com.qualcomm.robotcore.hardware.VoltageSensor;
+
+/**
+ * Every motor on the robot and the battery they share. Motor state and constants are kept in parallel arrays indexed
+ * by the number {@link #add} returns, and {@link #update} walks them in two flat loops per step.
+ *
+ * Each motor is a brushed DC motor on an H-bridge: at duty {@code p} it sees {@code p * V} across a winding of
+ * resistance {@code R} against a back-EMF proportional to its speed. The battery is an open-circuit voltage that falls
+ * linearly with the charge drawn, behind an internal resistance. The bus voltage is solved in closed form from all
+ * the motors at once, so heavy acceleration on one motor sags the voltage every other motor sees in the same step.
+ */
+public class ElectricalModel implements VoltageSensor {
+
+	public static final double DEFAULT_FULL_VOLTAGE = 13.8, DEFAULT_EMPTY_VOLTAGE = 12.0;
+	public static final double DEFAULT_INTERNAL_RESISTANCE = 0.12, DEFAULT_CAPACITY = 3.0;
+	// About a 15 kg robot on 96 mm wheels shared between four motors
+	public static final double DEFAULT_LOAD_INERTIA = 0.009;
+
+	private int count = 0;
+	private double[] power = new double[0], velocity = new double[0], angle = new double[0], current = new double[0];
+	private double[] resistance = new double[0], torqueConstant = new double[0], backEmfConstant = new double[0], friction = new double[0], inertia = new double[0];
+	private boolean[] coast = new boolean[0];
+
+	private double fullVoltage = DEFAULT_FULL_VOLTAGE, emptyVoltage = DEFAULT_EMPTY_VOLTAGE;
+	private double internalResistance = DEFAULT_INTERNAL_RESISTANCE, capacity = DEFAULT_CAPACITY;
+	private double chargeUsed = 0, voltage = DEFAULT_FULL_VOLTAGE, batteryCurrent = 0;
+
+	/** Adds a motor driving {@code loadInertia} kg m^2 at its output shaft and returns its index. */
+	public int add(final MotorSpec spec, final double loadInertia) {
+		final int index = count++;
+		power = Arrays.copyOf(power, count);
+		velocity = Arrays.copyOf(velocity, count);
+		angle = Arrays.copyOf(angle, count);
+		current = Arrays.copyOf(current, count);
+		resistance = Arrays.copyOf(resistance, count);
+		torqueConstant = Arrays.copyOf(torqueConstant, count);
+		backEmfConstant = Arrays.copyOf(backEmfConstant, count);
+		friction = Arrays.copyOf(friction, count);
+		inertia = Arrays.copyOf(inertia, count);
+		coast = Arrays.copyOf(coast, count);
+
+		resistance[index] = spec.getResistance();
+		torqueConstant[index] = spec.getTorqueConstant();
+		backEmfConstant[index] = spec.getBackEmfConstant();
+		friction[index] = spec.getFriction();
+		inertia[index] = loadInertia;
+		return index;
+	}
+
+	void update(final ArrayList<SimMotor> motors, final double timeStep) {
+		for (int i = 0; i < count; i++) {
+			final SimMotor motor = motors.get(i);
+			power[i] = Math.max(-1, Math.min(1, motor.getPower()));
+			coast[i] = motor.getZeroPowerBehavior() == ZeroPowerBehavior.FLOAT;
+		}
+
+		// Battery current is the sum of p * I over the motors, and I = (p * V - e) / R, so the bus voltage V solves
+		// V = Voc - Rint * (V * sum(p^2 / R) - sum(p * e / R))
+		double a = 0, b = 0;
+		for (int i = 0; i < count; i++) {
+			a += power[i] * power[i] / resistance[i];
+			b += power[i] * backEmfConstant[i] * velocity[i] / resistance[i];
+		}
+		final double openCircuit = getOpenCircuitVoltage();
+		voltage = (openCircuit + internalResistance * b) / (1 + internalResistance * a);
+
+		double total = 0;
+		for (int i = 0; i < count; i++) {
+			final double backEmf = backEmfConstant[i] * velocity[i];
+			// A floating motor at zero power is disconnected; a braking one has its windings shorted
+			final double motorCurrent = coast[i] && power[i] == 0 ? 0 : (power[i] * voltage - backEmf) / resistance[i];
+			current[i] = motorCurrent;
+			total += power[i] * motorCurrent;
+
+			velocity[i] += (torqueConstant[i] * motorCurrent - friction[i] * velocity[i]) / inertia[i] * timeStep;
+			angle[i] += velocity[i] * timeStep;
+		}
+
+		batteryCurrent = total;
+		if (total > 0) chargeUsed += total * timeStep / 3600;
+	}
+
+	@Override
+	public double getVoltage() {
+		return voltage;
+	}
+
+	public double getOpenCircuitVoltage() {
+		return emptyVoltage + (fullVoltage - emptyVoltage) * getStateOfCharge();
+	}
+
+	public double getBatteryCurrent() {
+		return batteryCurrent;
+	}
+
+	/** From 1 for a full battery down to 0 for an empty one. */
+	public double getStateOfCharge() {
+		return Math.max(0, 1 - chargeUsed / capacity);
+	}
+
+	public void setStateOfCharge(final double stateOfCharge) {
+		chargeUsed = (1 - Math.max(0, Math.min(1, stateOfCharge))) * capacity;
+		voltage = getOpenCircuitVoltage();
+	}
+
+	public void setBattery(final double fullVoltage, final double emptyVoltage, final double internalResistance, final double capacity) {
+		this.fullVoltage = fullVoltage;
+		this.emptyVoltage = emptyVoltage;
+		this.internalResistance = internalResistance;
+		this.capacity = capacity;
+	}
+
+	double getChargeUsed() {
+		return chargeUsed;
+	}
+
+	void setChargeUsed(final double chargeUsed) {
+		this.chargeUsed = chargeUsed;
+		voltage = getOpenCircuitVoltage();
+	}
+
+	/** Output shaft speed in radians per second. */
+	public double getVelocity(final int index) {
+		return velocity[index];
+	}
+
+	/** Output shaft angle in radians since the start of the simulation. */
+	public double getAngle(final int index) {
+		return angle[index];
+	}
+
+	/** Winding current in amps; negative while the motor is braking or being back-driven. */
+	public double getCurrent(final int index) {
+		return current[index];
+	}
+
+	void setState(final int index, final double velocity, final double angle, final double current) {
+		this.velocity[index] = velocity;
+		this.angle[index] = angle;
+		this.current[index] = current;
+	}
+
+}
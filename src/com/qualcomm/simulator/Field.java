@@ -0,0 +1,286 @@
+package com.qualcomm.simulator;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Static field geometry for sensors: walls and obstacles as line segments, and the floor (tiles and tape) as a colour
+ * raster. Everything is in inches with the origin at a field corner, x to the right and y down, like the window.
+ *
+ * Segments are bucketed into a uniform grid when the field is built, so a raycast only tests the segments in the cells
+ * it passes through, nearest cell first, and stops at the first cell that contains a hit. A field is immutable once
+ * built and can be shared by any number of simulations and threads.
+ */
+public class Field {
+
+	public static final float SIZE = 144f;
+	public static final int FLOOR_RESOLUTION = 2; // pixels per inch
+
+	private static final float CELL_SIZE = 6f;
+	private static final int CELLS = (int) (SIZE / CELL_SIZE);
+	private static final int FLOOR_PIXELS = (int) SIZE * FLOOR_RESOLUTION;
+
+	private static final int TILE_COLOR = 0xFF7A7A7A, TILE_SEAM_COLOR = 0xFF6A6A6A;
+	public static final int WALL_COLOR = 0xFFB8C4CC;
+
+	private static Field defaultField;
+
+	private final float[] x1, y1, x2, y2;
+	private final int[] color;
+	// Segments of cell c are cellSegments[cellStart[c]] .. cellSegments[cellStart[c + 1] - 1]
+	private final int[] cellStart, cellSegments;
+	private final int[] floor;
+
+	private Field(final Builder builder) {
+		final int count = builder.segments;
+		x1 = Arrays.copyOf(builder.x1, count);
+		y1 = Arrays.copyOf(builder.y1, count);
+		x2 = Arrays.copyOf(builder.x2, count);
+		y2 = Arrays.copyOf(builder.y2, count);
+		color = Arrays.copyOf(builder.color, count);
+		floor = builder.floor.clone();
+
+		// Count, then fill; each segment goes into every cell its bounding box overlaps
+		cellStart = new int[CELLS * CELLS + 1];
+		for (int s = 0; s < count; s++) {
+			forEachCell(s, cell -> cellStart[cell + 1]++);
+		}
+		for (int c = 0; c < CELLS * CELLS; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+
+		cellSegments = new int[cellStart[CELLS * CELLS]];
+		final int[] fill = Arrays.copyOf(cellStart, CELLS * CELLS);
+		for (int s = 0; s < count; s++) {
+			final int segment = s;
+			forEachCell(s, cell -> cellSegments[fill[cell]++] = segment);
+		}
+	}
+
+	private interface CellConsumer {
+		void accept(int cell);
+	}
+
+	private void forEachCell(final int s, final CellConsumer consumer) {
+		final int minX = cell(Math.min(x1[s], x2[s])), maxX = cell(Math.max(x1[s], x2[s]));
+		final int minY = cell(Math.min(y1[s], y2[s])), maxY = cell(Math.max(y1[s], y2[s]));
+		for (int cy = minY; cy <= maxY; cy++) {
+			for (int cx = minX; cx <= maxX; cx++) {
+				consumer.accept(cy * CELLS + cx);
+			}
+		}
+	}
+
+	private static int cell(final float coordinate) {
+		final int cell = (int) Math.floor(coordinate / CELL_SIZE);
+		return cell < 0 ? 0 : cell >= CELLS ? CELLS - 1 : cell;
+	}
+
+	/**
+	 * The perimeter walls, a 24 inch square structure in front of the default starting position, a white mid-field line
+	 * and a red and a blue diagonal tape line.
+	 */
+	public static synchronized Field getDefault() {
+		if (defaultField == null) {
+			defaultField = new Builder().addBox(72, 36, 24, 24, 0xFFE0B000).addTape(0, 72, 48, 72, 2, 0xFFFFFFFF).addTape(96, 72, 144, 72, 2, 0xFFFFFFFF).addTape(12, 12, 36, 36, 2, 0xFFD02020).addTape(132, 12, 108, 36, 2, 0xFF2040D0).build();
+		}
+
+		return defaultField;
+	}
+
+	/**
+	 * Distance in inches from {@code (ox, oy)} along the unit vector {@code (dx, dy)} to the nearest segment, or
+	 * {@link Float#POSITIVE_INFINITY} if nothing is hit within {@code maxDistance}.
+	 */
+	public float raycast(final float ox, final float oy, final float dx, final float dy, final float maxDistance) {
+		final int segment = raycastSegment(ox, oy, dx, dy, maxDistance);
+		return segment < 0 ? Float.POSITIVE_INFINITY : intersect(segment, ox, oy, dx, dy);
+	}
+
+	/** Like {@link #raycast} but returns the index of the segment hit, or -1 if there is none. */
+	public int raycastSegment(final float ox, final float oy, final float dx, final float dy, final float maxDistance) {
+		// Clip the ray to the grid so it can start outside the field
+		float tEnter = 0f, tExit = maxDistance;
+		if (dx != 0f) {
+			final float ta = -ox / dx, tb = (SIZE - ox) / dx;
+			tEnter = Math.max(tEnter, Math.min(ta, tb));
+			tExit = Math.min(tExit, Math.max(ta, tb));
+		} else if (ox < 0f || ox > SIZE) {
+			return -1;
+		}
+		if (dy != 0f) {
+			final float ta = -oy / dy, tb = (SIZE - oy) / dy;
+			tEnter = Math.max(tEnter, Math.min(ta, tb));
+			tExit = Math.min(tExit, Math.max(ta, tb));
+		} else if (oy < 0f || oy > SIZE) {
+			return -1;
+		}
+		if (tEnter > tExit) return -1;
+
+		int cx = cell(ox + dx * tEnter), cy = cell(oy + dy * tEnter);
+		final int stepX = dx > 0f ? 1 : dx < 0f ? -1 : 0, stepY = dy > 0f ? 1 : dy < 0f ? -1 : 0;
+		float tMaxX = stepX > 0 ? ((cx + 1) * CELL_SIZE - ox) / dx : stepX < 0 ? (cx * CELL_SIZE - ox) / dx : Float.POSITIVE_INFINITY;
+		float tMaxY = stepY > 0 ? ((cy + 1) * CELL_SIZE - oy) / dy : stepY < 0 ? (cy * CELL_SIZE - oy) / dy : Float.POSITIVE_INFINITY;
+		final float tDeltaX = stepX == 0 ? Float.POSITIVE_INFINITY : CELL_SIZE / Math.abs(dx);
+		final float tDeltaY = stepY == 0 ? Float.POSITIVE_INFINITY : CELL_SIZE / Math.abs(dy);
+
+		float best = Float.POSITIVE_INFINITY;
+		int bestSegment = -1;
+		while (true) {
+			final int cell = cy * CELLS + cx;
+			for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+				final float t = intersect(cellSegments[i], ox, oy, dx, dy);
+				if (t < best) {
+					best = t;
+					bestSegment = cellSegments[i];
+				}
+			}
+
+			final float cellExit = Math.min(tMaxX, tMaxY);
+			// A hit inside this cell can't be beaten by anything in a later cell
+			if (best <= cellExit || cellExit > tExit) break;
+
+			if (tMaxX < tMaxY) {
+				cx += stepX;
+				tMaxX += tDeltaX;
+			} else {
+				cy += stepY;
+				tMaxY += tDeltaY;
+			}
+			if (cx < 0 || cx >= CELLS || cy < 0 || cy >= CELLS) break;
+		}
+
+		return best <= maxDistance ? bestSegment : -1;
+	}
+
+	/** Distance along the ray to a segment returned by {@link #raycastSegment}. */
+	public float getSegmentDistance(final int segment, final float ox, final float oy, final float dx, final float dy) {
+		return intersect(segment, ox, oy, dx, dy);
+	}
+
+	private float intersect(final int s, final float ox, final float oy, final float dx, final float dy) {
+		final float sx = x2[s] - x1[s], sy = y2[s] - y1[s];
+		final float denominator = dx * sy - dy * sx;
+		if (denominator == 0f) return Float.POSITIVE_INFINITY;
+
+		final float qx = x1[s] - ox, qy = y1[s] - oy;
+		final float t = (qx * sy - qy * sx) / denominator;
+		final float u = (qx * dy - qy * dx) / denominator;
+		return t >= 0f && u >= 0f && u <= 1f ? t : Float.POSITIVE_INFINITY;
+	}
+
+	/** The floor colour at a field position, or black outside the field. */
+	public int getFloorColor(final float x, final float y) {
+		final int px = (int) (x * FLOOR_RESOLUTION), py = (int) (y * FLOOR_RESOLUTION);
+		if (x < 0f || y < 0f || px >= FLOOR_PIXELS || py >= FLOOR_PIXELS) return 0xFF000000;
+		return floor[py * FLOOR_PIXELS + px];
+	}
+
+	public int getSegmentCount() {
+		return x1.length;
+	}
+
+	public float getSegmentX1(final int segment) {
+		return x1[segment];
+	}
+
+	public float getSegmentY1(final int segment) {
+		return y1[segment];
+	}
+
+	public float getSegmentX2(final int segment) {
+		return x2[segment];
+	}
+
+	public float getSegmentY2(final int segment) {
+		return y2[segment];
+	}
+
+	public int getSegmentColor(final int segment) {
+		return color[segment];
+	}
+
+	/** The floor raster as an image, {@link #FLOOR_RESOLUTION} pixels per inch. */
+	public BufferedImage createFloorImage() {
+		final BufferedImage image = new BufferedImage(FLOOR_PIXELS, FLOOR_PIXELS, BufferedImage.TYPE_INT_ARGB);
+		image.setRGB(0, 0, FLOOR_PIXELS, FLOOR_PIXELS, floor, 0, FLOOR_PIXELS);
+		return image;
+	}
+
+	public static class Builder {
+
+		private float[] x1 = new float[16], y1 = new float[16], x2 = new float[16], y2 = new float[16];
+		private int[] color = new int[16];
+		private int segments = 0;
+		private final int[] floor = new int[FLOOR_PIXELS * FLOOR_PIXELS];
+
+		/** Starts with the four perimeter walls and bare tiles. */
+		public Builder() {
+			for (int py = 0; py < FLOOR_PIXELS; py++) {
+				for (int px = 0; px < FLOOR_PIXELS; px++) {
+					final boolean seam = px % (24 * FLOOR_RESOLUTION) == 0 || py % (24 * FLOOR_RESOLUTION) == 0;
+					floor[py * FLOOR_PIXELS + px] = seam ? TILE_SEAM_COLOR : TILE_COLOR;
+				}
+			}
+
+			addWall(0, 0, SIZE, 0);
+			addWall(SIZE, 0, SIZE, SIZE);
+			addWall(SIZE, SIZE, 0, SIZE);
+			addWall(0, SIZE, 0, 0);
+		}
+
+		public Builder addWall(final float x1, final float y1, final float x2, final float y2) {
+			return addWall(x1, y1, x2, y2, WALL_COLOR);
+		}
+
+		public Builder addWall(final float x1, final float y1, final float x2, final float y2, final int color) {
+			if (segments == this.x1.length) {
+				this.x1 = Arrays.copyOf(this.x1, segments * 2);
+				this.y1 = Arrays.copyOf(this.y1, segments * 2);
+				this.x2 = Arrays.copyOf(this.x2, segments * 2);
+				this.y2 = Arrays.copyOf(this.y2, segments * 2);
+				this.color = Arrays.copyOf(this.color, segments * 2);
+			}
+
+			this.x1[segments] = x1;
+			this.y1[segments] = y1;
+			this.x2[segments] = x2;
+			this.y2[segments] = y2;
+			this.color[segments] = color;
+			segments++;
+			return this;
+		}
+
+		/** An axis-aligned solid obstacle centred on {@code (x, y)}. */
+		public Builder addBox(final float x, final float y, final float width, final float height) {
+			return addBox(x, y, width, height, WALL_COLOR);
+		}
+
+		public Builder addBox(final float x, final float y, final float width, final float height, final int color) {
+			final float left = x - width / 2, right = x + width / 2, top = y - height / 2, bottom = y + height / 2;
+			return addWall(left, top, right, top, color).addWall(right, top, right, bottom, color).addWall(right, bottom, left, bottom, color).addWall(left, bottom, left, top, color);
+		}
+
+		/** A strip of tape {@code width} inches wide painted onto the floor between two points. */
+		public Builder addTape(final float x1, final float y1, final float x2, final float y2, final float width, final int color) {
+			final float lx = x2 - x1, ly = y2 - y1, lengthSquared = lx * lx + ly * ly;
+			final float halfWidth = width / 2;
+			for (int py = 0; py < FLOOR_PIXELS; py++) {
+				for (int px = 0; px < FLOOR_PIXELS; px++) {
+					final float x = (px + 0.5f) / FLOOR_RESOLUTION, y = (py + 0.5f) / FLOOR_RESOLUTION;
+					final float t = lengthSquared == 0f ? 0f : Math.max(0f, Math.min(1f, ((x - x1) * lx + (y - y1) * ly) / lengthSquared));
+					final float ex = x - (x1 + t * lx), ey = y - (y1 + t * ly);
+					if (ex * ex + ey * ey <= halfWidth * halfWidth) floor[py * FLOOR_PIXELS + px] = color;
+				}
+			}
+
+			return this;
+		}
+
+		public Field build() {
+			return new Field(this);
+		}
+
+	}
+
+}
@@ -63,4 +63,12 @@ public class Frame implements RobotComponent {
 		return rotation;
 	}
 
+	public float getWidth() {
+		return width;
+	}
+
+	public float getHeight() {
+		return height;
+	}
+
 }
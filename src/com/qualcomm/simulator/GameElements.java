@@ -0,0 +1,416 @@
+package com.qualcomm.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Loose game elements on the field floor: balls, samples and blocks, each a disc with its own radius, mass and floor
+ * friction. State is kept in parallel arrays indexed by the number {@link #add} returns, like {@link ElectricalModel}.
+ *
+ * Elements slide on the floor until friction stops them, bounce off walls and each other, and are pushed by the
+ * robot's {@link Frame}s, which move them however hard they push back. An element that has been nearly still for
+ * {@link #SLEEP_TIME} goes to sleep: it is no longer moved or tested against other elements, only against the robot
+ * while the robot moves, and wakes when anything touches it. A field of resting elements costs one loop over the
+ * elements per physics step, and nothing at all while the robot stands still.
+ */
+public class GameElements {
+
+	public static final float BALL_RADIUS = 2.5f, BALL_MASS = 0.1f, BALL_FRICTION = 0.05f;
+	// A 3.5 x 1.5 inch sample is taken as a disc 3.5 inches across, which is close enough for pushing it about
+	public static final float SAMPLE_RADIUS = 1.75f, SAMPLE_MASS = 0.06f, SAMPLE_FRICTION = 0.4f;
+	public static final float RESTITUTION = 0.3f, CONTACT_FRICTION = 0.3f;
+	public static final float SLEEP_SPEED = 0.5f, SLEEP_TIME = 0.5f;
+
+	private static final float GRAVITY = 386.09f; // inches per second squared
+
+	private int count = 0;
+	private float[] x = new float[0], y = new float[0], vx = new float[0], vy = new float[0];
+	private float[] radius = new float[0], inverseMass = new float[0], friction = new float[0], restTime = new float[0];
+	private int[] color = new int[0];
+	// Whether each element is awake, and whether it was at the start of this step
+	private boolean[] awake = new boolean[0], moving = new boolean[0];
+	private int[] awakeIndex = new int[0];
+	private int awakeCount = 0;
+
+	// The robot's frames in robot coordinates: centre, half extents, and the cosine and sine of their rotation
+	private float[] footprint = new float[0];
+	private float robotRadius = 0;
+	private float lastX = Float.NaN, lastY, lastRotation;
+
+	private volatile long version = 0;
+
+	/** Adds an element, asleep until something touches it, and returns its index. Mass is in pounds, though only the ratios matter. */
+	public int add(final float x, final float y, final float radius, final float mass, final float friction, final int color) {
+		final int index = count++;
+		this.x = Arrays.copyOf(this.x, count);
+		this.y = Arrays.copyOf(this.y, count);
+		vx = Arrays.copyOf(vx, count);
+		vy = Arrays.copyOf(vy, count);
+		this.radius = Arrays.copyOf(this.radius, count);
+		inverseMass = Arrays.copyOf(inverseMass, count);
+		this.friction = Arrays.copyOf(this.friction, count);
+		restTime = Arrays.copyOf(restTime, count);
+		this.color = Arrays.copyOf(this.color, count);
+		awake = Arrays.copyOf(awake, count);
+		moving = Arrays.copyOf(moving, count);
+		awakeIndex = Arrays.copyOf(awakeIndex, count);
+
+		this.x[index] = x;
+		this.y[index] = y;
+		this.radius[index] = radius;
+		inverseMass[index] = 1 / mass;
+		this.friction[index] = friction;
+		this.color[index] = color;
+		version++;
+		return index;
+	}
+
+	public int addBall(final float x, final float y, final int color) {
+		return add(x, y, BALL_RADIUS, BALL_MASS, BALL_FRICTION, color);
+	}
+
+	public int addSample(final float x, final float y, final int color) {
+		return add(x, y, SAMPLE_RADIUS, SAMPLE_MASS, SAMPLE_FRICTION, color);
+	}
+
+	/**
+	 * Drops {@code count} samples at random places on the field from {@code seed}, clear of the walls, of each other and
+	 * of a {@code keepOut} inch circle around {@code (keepOutX, keepOutY)}. Gives up on any it can't place.
+	 */
+	public void scatter(final int count, final long seed, final Field field, final float keepOutX, final float keepOutY, final float keepOut) {
+		final Random random = new Random(seed);
+		final int[] colors = {0xFFD02020, 0xFF2040D0, 0xFFE0C000};
+		for (int placed = 0, tries = 0; placed < count && tries < count * 100; tries++) {
+			final float px = SAMPLE_RADIUS + random.nextFloat() * (Field.SIZE - 2 * SAMPLE_RADIUS);
+			final float py = SAMPLE_RADIUS + random.nextFloat() * (Field.SIZE - 2 * SAMPLE_RADIUS);
+			if (isClear(px, py, SAMPLE_RADIUS, field, keepOutX, keepOutY, keepOut)) {
+				addSample(px, py, colors[placed % colors.length]);
+				placed++;
+			}
+		}
+	}
+
+	private boolean isClear(final float px, final float py, final float r, final Field field, final float keepOutX, final float keepOutY, final float keepOut) {
+		final float kx = px - keepOutX, ky = py - keepOutY;
+		if (kx * kx + ky * ky < (keepOut + r) * (keepOut + r)) return false;
+
+		for (int i = 0; i < count; i++) {
+			final float dx = px - x[i], dy = py - y[i], reach = r + radius[i] + 0.5f;
+			if (dx * dx + dy * dy < reach * reach) return false;
+		}
+
+		for (int s = 0; s < field.getSegmentCount(); s++) {
+			final float x1 = field.getSegmentX1(s), y1 = field.getSegmentY1(s), sx = field.getSegmentX2(s) - x1, sy = field.getSegmentY2(s) - y1;
+			final float lengthSquared = sx * sx + sy * sy;
+			final float t = lengthSquared == 0f ? 0f : Math.max(0f, Math.min(1f, ((px - x1) * sx + (py - y1) * sy) / lengthSquared));
+			final float ex = px - (x1 + t * sx), ey = py - (y1 + t * sy);
+			if (ex * ex + ey * ey < (r + 0.5f) * (r + 0.5f)) return false;
+		}
+
+		return true;
+	}
+
+	/** Takes the robot's outline from its {@link Frame}s; everything else on the robot passes through elements. */
+	void setFootprint(final ArrayList<RobotComponent> robot) {
+		int frames = 0;
+		for (final RobotComponent component : robot) {
+			if (component instanceof Frame) frames++;
+		}
+
+		footprint = new float[frames * 6];
+		robotRadius = 0;
+		int offset = 0;
+		for (final RobotComponent component : robot) {
+			if (!(component instanceof Frame)) continue;
+
+			final Frame frame = (Frame) component;
+			final double rotation = Math.toRadians(frame.getRotation());
+			footprint[offset] = frame.getX();
+			footprint[offset + 1] = frame.getY();
+			footprint[offset + 2] = frame.getWidth() / 2;
+			footprint[offset + 3] = frame.getHeight() / 2;
+			footprint[offset + 4] = (float) Math.cos(rotation);
+			footprint[offset + 5] = (float) Math.sin(rotation);
+			robotRadius = Math.max(robotRadius, (float) (Math.hypot(frame.getX(), frame.getY()) + Math.hypot(frame.getWidth() / 2, frame.getHeight() / 2)));
+			offset += 6;
+		}
+	}
+
+	/** Advances every awake element by {@code timeStep} seconds with the robot now at the given pose. */
+	void update(final double timeStep, final Field field, final float robotX, final float robotY, final float robotRotation) {
+		if (count == 0) return;
+
+		final float dt = (float) timeStep;
+		awakeCount = 0;
+		for (int i = 0; i < count; i++) {
+			moving[i] = awake[i];
+			if (awake[i]) awakeIndex[awakeCount++] = i;
+		}
+
+		// Floor friction slows each element by mu g, stopping it rather than reversing it
+		for (int k = 0; k < awakeCount; k++) {
+			final int i = awakeIndex[k];
+			final float speed = (float) Math.sqrt(vx[i] * vx[i] + vy[i] * vy[i]), slowing = friction[i] * GRAVITY * dt;
+			if (speed <= slowing) {
+				vx[i] = 0f;
+				vy[i] = 0f;
+			} else {
+				final float factor = (speed - slowing) / speed;
+				vx[i] *= factor;
+				vy[i] *= factor;
+			}
+			x[i] += vx[i] * dt;
+			y[i] += vy[i] * dt;
+		}
+
+		// Sleeping elements can only be hit by the robot when it has moved
+		final boolean robotMoved = robotX != lastX || robotY != lastY || robotRotation != lastRotation;
+		if (Float.isNaN(lastX)) {
+			// The first step, or the first after a restore: the robot's surface isn't moving
+			lastX = robotX;
+			lastY = robotY;
+			lastRotation = robotRotation;
+		}
+		if (robotMoved || awakeCount > 0) pushByRobot(dt, robotX, robotY, robotRotation, robotMoved);
+		lastX = robotX;
+		lastY = robotY;
+		lastRotation = robotRotation;
+
+		// Each awake element against every other; a pair of awake elements is taken once, from the lower index
+		for (int k = 0; k < awakeCount; k++) {
+			final int i = awakeIndex[k];
+			for (int j = 0; j < count; j++) {
+				if (j == i || moving[j] && j < i) continue;
+				collide(i, j);
+			}
+		}
+
+		for (int k = 0; k < awakeCount; k++) {
+			collideWalls(awakeIndex[k], field);
+		}
+
+		for (int k = 0; k < awakeCount; k++) {
+			final int i = awakeIndex[k];
+			if (vx[i] * vx[i] + vy[i] * vy[i] >= SLEEP_SPEED * SLEEP_SPEED) {
+				restTime[i] = 0f;
+			} else if ((restTime[i] += dt) >= SLEEP_TIME) {
+				awake[i] = false;
+				vx[i] = 0f;
+				vy[i] = 0f;
+			}
+		}
+
+		if (awakeCount > 0) version++;
+	}
+
+	private void pushByRobot(final float dt, final float robotX, final float robotY, final float robotRotation, final boolean robotMoved) {
+		final double rotation = Math.toRadians(robotRotation), previous = Math.toRadians(lastRotation);
+		final float sin = (float) Math.sin(rotation), cos = (float) Math.cos(rotation);
+		final float lastSin = (float) Math.sin(previous), lastCos = (float) Math.cos(previous);
+
+		for (int i = 0; i < count; i++) {
+			if (!robotMoved && !moving[i]) continue;
+
+			final float dx = x[i] - robotX, dy = y[i] - robotY, reach = robotRadius + radius[i];
+			if (dx * dx + dy * dy >= reach * reach) continue;
+
+			// Into robot coordinates: x to the robot's right, y to its back
+			final float lx = dx * sin + dy * cos, ly = -dx * cos + dy * sin;
+			for (int offset = 0; offset < footprint.length; offset += 6) {
+				final float boxCos = footprint[offset + 4], boxSin = footprint[offset + 5];
+				final float halfWidth = footprint[offset + 2], halfHeight = footprint[offset + 3];
+				final float px = lx - footprint[offset], py = ly - footprint[offset + 1];
+				final float ux = px * boxCos - py * boxSin, uy = px * boxSin + py * boxCos;
+
+				float nx, ny, depth;
+				if (Math.abs(ux) < halfWidth && Math.abs(uy) < halfHeight) {
+					// The centre got inside, so leave by the nearest side
+					if (halfWidth - Math.abs(ux) < halfHeight - Math.abs(uy)) {
+						nx = Math.signum(ux);
+						ny = 0f;
+						depth = halfWidth - Math.abs(ux) + radius[i];
+					} else {
+						nx = 0f;
+						ny = Math.signum(uy);
+						depth = halfHeight - Math.abs(uy) + radius[i];
+					}
+				} else {
+					final float ex = ux - Math.max(-halfWidth, Math.min(halfWidth, ux)), ey = uy - Math.max(-halfHeight, Math.min(halfHeight, uy));
+					final float distance = (float) Math.sqrt(ex * ex + ey * ey);
+					if (distance >= radius[i] || distance == 0f) continue;
+					nx = ex / distance;
+					ny = ey / distance;
+					depth = radius[i] - distance;
+				}
+
+				// Back through the box's rotation to robot coordinates, then to the field
+				final float rx = nx * boxCos + ny * boxSin, ry = -nx * boxSin + ny * boxCos;
+				final float fx = rx * sin - ry * cos, fy = rx * cos + ry * sin;
+
+				// How fast the robot's surface moved at the contact, from where that point was at the last pose
+				final float contactX = lx - rx * radius[i], contactY = ly - ry * radius[i];
+				final float lastFieldX = lastX + contactX * lastSin - contactY * lastCos, lastFieldY = lastY + contactX * lastCos + contactY * lastSin;
+				final float fieldX = robotX + contactX * sin - contactY * cos, fieldY = robotY + contactX * cos + contactY * sin;
+				resolve(i, fx, fy, depth, (fieldX - lastFieldX) / dt, (fieldY - lastFieldY) / dt);
+			}
+		}
+	}
+
+	private void collideWalls(final int i, final Field field) {
+		for (int s = 0; s < field.getSegmentCount(); s++) {
+			final float x1 = field.getSegmentX1(s), y1 = field.getSegmentY1(s), sx = field.getSegmentX2(s) - x1, sy = field.getSegmentY2(s) - y1;
+			final float lengthSquared = sx * sx + sy * sy;
+			final float t = lengthSquared == 0f ? 0f : Math.max(0f, Math.min(1f, ((x[i] - x1) * sx + (y[i] - y1) * sy) / lengthSquared));
+			final float ex = x[i] - (x1 + t * sx), ey = y[i] - (y1 + t * sy);
+			final float distanceSquared = ex * ex + ey * ey;
+			if (distanceSquared >= radius[i] * radius[i] || distanceSquared == 0f) continue;
+
+			final float distance = (float) Math.sqrt(distanceSquared);
+			resolve(i, ex / distance, ey / distance, radius[i] - distance, 0f, 0f);
+		}
+	}
+
+	// Pushes element i out along the unit normal (nx, ny) of something immovable whose surface moves at (sx, sy)
+	private void resolve(final int i, final float nx, final float ny, final float depth, final float sx, final float sy) {
+		x[i] += nx * depth;
+		y[i] += ny * depth;
+		wake(i);
+
+		final float rx = vx[i] - sx, ry = vy[i] - sy;
+		final float normal = rx * nx + ry * ny;
+		if (normal >= 0f) return;
+
+		final float impulse = -(1 + RESTITUTION) * normal;
+		vx[i] += nx * impulse;
+		vy[i] += ny * impulse;
+
+		final float tx = rx - normal * nx, ty = ry - normal * ny, tangent = (float) Math.sqrt(tx * tx + ty * ty);
+		if (tangent > 0f) {
+			final float slowing = Math.min(tangent, CONTACT_FRICTION * impulse) / tangent;
+			vx[i] -= tx * slowing;
+			vy[i] -= ty * slowing;
+		}
+	}
+
+	private void collide(final int i, final int j) {
+		final float dx = x[j] - x[i], dy = y[j] - y[i], reach = radius[i] + radius[j];
+		final float distanceSquared = dx * dx + dy * dy;
+		if (distanceSquared >= reach * reach || distanceSquared == 0f) return;
+
+		final float distance = (float) Math.sqrt(distanceSquared);
+		final float nx = dx / distance, ny = dy / distance, depth = reach - distance;
+
+		// A sleeping element only wakes when it is struck; merely resting against one, it holds still like a wall
+		if (!awake[j] && (vx[i] - vx[j]) * nx + (vy[i] - vy[j]) * ny < SLEEP_SPEED) {
+			resolve(i, -nx, -ny, depth, 0f, 0f);
+			return;
+		}
+
+		final float wi = inverseMass[i], wj = inverseMass[j], w = wi + wj;
+		x[i] -= nx * depth * wi / w;
+		y[i] -= ny * depth * wi / w;
+		x[j] += nx * depth * wj / w;
+		y[j] += ny * depth * wj / w;
+		wake(j);
+
+		final float rx = vx[j] - vx[i], ry = vy[j] - vy[i];
+		final float normal = rx * nx + ry * ny;
+		if (normal >= 0f) return;
+
+		final float impulse = -(1 + RESTITUTION) * normal / w;
+		vx[i] -= nx * impulse * wi;
+		vy[i] -= ny * impulse * wi;
+		vx[j] += nx * impulse * wj;
+		vy[j] += ny * impulse * wj;
+
+		final float tx = rx - normal * nx, ty = ry - normal * ny, tangent = (float) Math.sqrt(tx * tx + ty * ty);
+		if (tangent > 0f) {
+			final float slowing = Math.min(tangent / w, CONTACT_FRICTION * impulse) / tangent;
+			vx[i] += tx * slowing * wi;
+			vy[i] += ty * slowing * wi;
+			vx[j] -= tx * slowing * wj;
+			vy[j] -= ty * slowing * wj;
+		}
+	}
+
+	// Touching an awake element doesn't restart its rest time; only its speed does that
+	private void wake(final int i) {
+		if (awake[i]) return;
+		awake[i] = true;
+		restTime[i] = 0f;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	/** Elements that were moved in the last step. */
+	public int getAwakeCount() {
+		return awakeCount;
+	}
+
+	public float getX(final int index) {
+		return x[index];
+	}
+
+	public float getY(final int index) {
+		return y[index];
+	}
+
+	public float getRadius(final int index) {
+		return radius[index];
+	}
+
+	public int getColor(final int index) {
+		return color[index];
+	}
+
+	public boolean isAwake(final int index) {
+		return awake[index];
+	}
+
+	public void setPosition(final int index, final float x, final float y) {
+		this.x[index] = x;
+		this.y[index] = y;
+		vx[index] = 0f;
+		vy[index] = 0f;
+		wake(index);
+	}
+
+	public void setVelocity(final int index, final float vx, final float vy) {
+		this.vx[index] = vx;
+		this.vy[index] = vy;
+		wake(index);
+	}
+
+	/** Changes whenever an element may have moved; for painting only when something did. */
+	public long getVersion() {
+		return version;
+	}
+
+	void writeState(final double[] data, int offset) {
+		for (int i = 0; i < count; i++, offset += WorldSnapshot.ELEMENT_SIZE) {
+			data[offset] = x[i];
+			data[offset + 1] = y[i];
+			data[offset + 2] = vx[i];
+			data[offset + 3] = vy[i];
+			data[offset + 4] = awake[i] ? restTime[i] : -1;
+		}
+	}
+
+	void readState(final double[] data, int offset) {
+		for (int i = 0; i < count; i++, offset += WorldSnapshot.ELEMENT_SIZE) {
+			x[i] = (float) data[offset];
+			y[i] = (float) data[offset + 1];
+			vx[i] = (float) data[offset + 2];
+			vy[i] = (float) data[offset + 3];
+			awake[i] = data[offset + 4] >= 0;
+			restTime[i] = awake[i] ? (float) data[offset + 4] : 0f;
+		}
+		// The robot may have jumped, which is not a push
+		lastX = Float.NaN;
+		version++;
+	}
+
+}
@@ -0,0 +1,14 @@
+package com.qualcomm.simulator;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+/**
+ * Input for a headless {@link Simulation} in place of real controllers. It is asked to fill in both gamepads before
+ * every op mode loop.
+ */
+public interface GamepadSource {
+
+	/** Sets the gamepads to what they read {@code clock} simulated seconds into the run. */
+	public void update(double clock, Gamepad gamepad1, Gamepad gamepad2);
+
+}
@@ -0,0 +1,297 @@
+package com.qualcomm.simulator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import com.qualcomm.ftcrobotcontroller.opmodes.ExampleAutonomous;
+import com.qualcomm.ftcrobotcontroller.opmodes.ExampleOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.OpMode;
+
+/**
+ * A regression check for an op mode: run it headless with scripted or recorded gamepads, and compare the robot's
+ * pose and motor powers at every tick against a golden file recorded from a known good run. Runs are deterministic,
+ * so tolerances only have to absorb floating point differences and deliberate small changes.
+ *
+ * {@link #check} throws {@link AssertionError} on a mismatch, so it can be called straight from a JUnit test. Golden
+ * files are plain CSV, written by {@link #record}; the examples' are committed under {@code golden/} and checked by
+ * {@link #main}.
+ */
+public class GoldenTrajectory {
+
+	public static final float DEFAULT_POSITION_TOLERANCE = 0.25f, DEFAULT_ROTATION_TOLERANCE = 1f, DEFAULT_POWER_TOLERANCE = 0.01f;
+
+	private static final double TIME_STEP = 1d / 60;
+	private static final int CLOCK = 0, X = 1, Y = 2, ROTATION = 3, MOTORS = 4;
+
+	private final String name;
+	private final Supplier<? extends OpMode> opModes;
+	private GamepadSource gamepads;
+	private boolean strictAllocation = false;
+	private double duration = 5;
+	private float startX = 72, startY = 72, startRotation = 90;
+	private float positionTolerance = DEFAULT_POSITION_TOLERANCE, rotationTolerance = DEFAULT_ROTATION_TOLERANCE, powerTolerance = DEFAULT_POWER_TOLERANCE;
+
+	public GoldenTrajectory(final String name, final Supplier<? extends OpMode> opModes) {
+		this.name = name;
+		this.opModes = opModes;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public GoldenTrajectory setGamepads(final GamepadSource gamepads) {
+		this.gamepads = gamepads;
+		return this;
+	}
+
+	public GoldenTrajectory setDuration(final double seconds) {
+		duration = seconds;
+		return this;
+	}
+
+	public GoldenTrajectory setStartPose(final float x, final float y, final float rotation) {
+		startX = x;
+		startY = y;
+		startRotation = rotation;
+		return this;
+	}
+
+	/** Fails the run if physics or input allocate after the first second; see {@link Simulation#setStrictAllocation}. */
+	public GoldenTrajectory setStrictAllocation(final boolean strict) {
+		strictAllocation = strict;
+		return this;
+	}
+
+	/** Inches of position, degrees of heading and units of motor power a run may differ from its golden file. */
+	public GoldenTrajectory setTolerance(final float inches, final float degrees, final float power) {
+		positionTolerance = inches;
+		rotationTolerance = degrees;
+		powerTolerance = power;
+		return this;
+	}
+
+	/** Runs the op mode and returns one row per tick: clock, x, y, rotation and each motor's power. */
+	public Trajectory run() {
+		final Simulation simulation = new Simulation(opModes.get());
+		simulation.setRobotPose(startX, startY, startRotation);
+		if (gamepads != null) simulation.setGamepadSource(gamepads);
+		if (strictAllocation) simulation.setStrictAllocation(Math.round(1 / TIME_STEP));
+
+		final ArrayList<SimMotor> motors = simulation.getMotors();
+		final String[] columns = new String[MOTORS + motors.size()];
+		columns[CLOCK] = "clock";
+		columns[X] = "robot.x";
+		columns[Y] = "robot.y";
+		columns[ROTATION] = "robot.rotation";
+		for (int i = 0; i < motors.size(); i++) {
+			columns[MOTORS + i] = motors.get(i).getName() + ".power";
+		}
+
+		final Trajectory trajectory = new Trajectory(columns);
+		simulation.init();
+		final long steps = Math.round(duration / TIME_STEP);
+		for (long i = 0; i < steps; i++) {
+			simulation.step(TIME_STEP);
+
+			final double[] row = new double[columns.length];
+			row[CLOCK] = simulation.getClock();
+			row[X] = simulation.getRobotX();
+			row[Y] = simulation.getRobotY();
+			row[ROTATION] = simulation.getRobotRotation();
+			for (int m = 0; m < motors.size(); m++) {
+				row[MOTORS + m] = motors.get(m).getPower();
+			}
+			trajectory.rows.add(row);
+		}
+		simulation.stop();
+
+		return trajectory;
+	}
+
+	public void record(final Path golden) throws IOException {
+		run().write(golden);
+	}
+
+	/** Runs the op mode and throws {@link AssertionError} at the first tick that strays from the golden file. */
+	public void check(final Path golden) throws IOException {
+		compare(Trajectory.read(golden), run());
+	}
+
+	void compare(final Trajectory expected, final Trajectory actual) {
+		if (!Arrays.equals(expected.columns, actual.columns)) {
+			throw new AssertionError(String.format("%s: golden columns %s, run has %s", name, Arrays.toString(expected.columns), Arrays.toString(actual.columns)));
+		}
+		if (expected.rows.size() != actual.rows.size()) {
+			throw new AssertionError(String.format("%s: golden has %d ticks, run has %d", name, expected.rows.size(), actual.rows.size()));
+		}
+
+		for (int i = 0; i < expected.rows.size(); i++) {
+			final double[] e = expected.rows.get(i), a = actual.rows.get(i);
+			final double position = Math.hypot(a[X] - e[X], a[Y] - e[Y]);
+			if (position > positionTolerance) {
+				fail(e, String.format("robot at (%.2f, %.2f), expected (%.2f, %.2f): %.2f in off", a[X], a[Y], e[X], e[Y], position));
+			}
+
+			final float rotation = BatchEvaluator.angleDifference((float) a[ROTATION], (float) e[ROTATION]);
+			if (Math.abs(rotation) > rotationTolerance) {
+				fail(e, String.format("robot rotation %.2f, expected %.2f", a[ROTATION], e[ROTATION]));
+			}
+
+			for (int c = MOTORS; c < e.length; c++) {
+				if (Math.abs(a[c] - e[c]) > powerTolerance) {
+					fail(e, String.format("%s %.3f, expected %.3f", expected.columns[c], a[c], e[c]));
+				}
+			}
+		}
+	}
+
+	private void fail(final double[] row, final String message) {
+		throw new AssertionError(String.format("%s: at %.3fs %s", name, row[CLOCK], message));
+	}
+
+	/**
+	 * Checks every trajectory against {@code <directory>/<name>.csv} in parallel, or records them all if
+	 * {@code update} is set. Throws one {@link AssertionError} listing every failure.
+	 */
+	public static void checkAll(final List<GoldenTrajectory> trajectories, final Path directory, final boolean update) throws IOException, InterruptedException {
+		if (update) Files.createDirectories(directory);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		final ArrayList<String> failures = new ArrayList<String>();
+		try {
+			final ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+			for (final GoldenTrajectory trajectory : trajectories) {
+				final Path golden = directory.resolve(trajectory.getName() + ".csv");
+				if (!update && !Files.exists(golden)) {
+					failures.add(String.format("%s: no golden file %s; record it with update", trajectory.getName(), golden));
+					continue;
+				}
+				futures.add(executor.submit(() -> {
+					if (update) {
+						trajectory.record(golden);
+					} else {
+						trajectory.check(golden);
+					}
+					return null;
+				}));
+			}
+
+			for (final Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (final ExecutionException e) {
+					failures.add(e.getCause() instanceof AssertionError ? e.getCause().getMessage() : e.getCause().toString());
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		if (!failures.isEmpty()) throw new AssertionError(failures.size() + " golden trajectories failed:\n  " + String.join("\n  ", failures));
+	}
+
+	/** The example op modes' trajectories under a few scripted drives. Mode buttons go down after start, as edges. */
+	public static List<GoldenTrajectory> examples() {
+		final ArrayList<GoldenTrajectory> examples = new ArrayList<GoldenTrajectory>();
+		examples.add(new GoldenTrajectory("drive-forward", ExampleOpMode::new).setGamepads((clock, gamepad1, gamepad2) -> {
+			gamepad1.left_stick_y = clock < 2 ? -1f : 0f;
+		}));
+		examples.add(new GoldenTrajectory("drive-arc", ExampleOpMode::new).setGamepads((clock, gamepad1, gamepad2) -> {
+			gamepad1.left_stick_y = clock < 3 ? -0.6f : 0f;
+			gamepad1.left_stick_x = clock < 3 ? 0.4f : 0f;
+		}));
+		examples.add(new GoldenTrajectory("tank-turn", ExampleOpMode::new).setGamepads((clock, gamepad1, gamepad2) -> {
+			gamepad1.dpad_up = clock >= 0.05 && clock < 0.15;
+			gamepad1.left_stick_y = clock < 2 ? -0.8f : 0f;
+			gamepad1.right_stick_y = clock < 2 ? 0.8f : 0f;
+		}));
+		examples.add(new GoldenTrajectory("split-arc", ExampleOpMode::new).setGamepads((clock, gamepad1, gamepad2) -> {
+			gamepad1.dpad_right = clock >= 0.05 && clock < 0.15;
+			gamepad1.left_stick_y = clock < 3 ? -0.6f : 0f;
+			gamepad1.right_stick_x = clock < 3 ? 0.4f : 0f;
+		}));
+		examples.add(new GoldenTrajectory("scripted-teleop", ExampleOpMode::new).setDuration(6).setGamepads(new ScriptedGamepads(
+				"left_stick_y=-1 at 0.2s for 1.5s; ramp left_stick_x=0.5 at 2.5s, left_stick_y=-0.5 at 2.5s for 2s; left_stick_x=0 at 4.5s")));
+		examples.add(new GoldenTrajectory("autonomous", ExampleAutonomous::new).setDuration(8));
+		return examples;
+	}
+
+	/**
+	 * The regression test: {@code GoldenTrajectory [directory] [update]}, run from the repository root, checks the
+	 * examples against the golden files in {@code directory}, {@code golden} by default, and exits non-zero on any
+	 * mismatch. Checks run in strict mode, so a run whose physics or input allocate fails too. {@code update} rewrites
+	 * the golden files instead; review the difference before committing it.
+	 */
+	public static void main(final String[] args) throws IOException, InterruptedException {
+		final Path directory = Paths.get(args.length > 0 ? args[0] : "golden");
+		final List<String> options = Arrays.asList(args).subList(Math.min(1, args.length), args.length);
+		final boolean update = options.contains("update");
+
+		final List<GoldenTrajectory> examples = examples();
+		for (final GoldenTrajectory example : examples) {
+			example.setStrictAllocation(!update);
+		}
+		final long start = System.nanoTime();
+		checkAll(examples, directory, update);
+		System.out.println(String.format("%d golden trajectories %s in %.0f ms", examples.size(), update ? "recorded" : "passed", (System.nanoTime() - start) / 1e6));
+	}
+
+	public static class Trajectory {
+
+		public final String[] columns;
+		public final ArrayList<double[]> rows = new ArrayList<double[]>();
+
+		Trajectory(final String[] columns) {
+			this.columns = columns;
+		}
+
+		void write(final Path file) throws IOException {
+			try (final BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+				out.write(String.join(",", columns));
+				out.newLine();
+				for (final double[] row : rows) {
+					for (int i = 0; i < row.length; i++) {
+						if (i > 0) out.write(',');
+						out.write(Double.toString(row[i]));
+					}
+					out.newLine();
+				}
+			}
+		}
+
+		static Trajectory read(final Path file) throws IOException {
+			try (final BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				final String header = in.readLine();
+				if (header == null) throw new IOException(file + " is empty");
+
+				final Trajectory trajectory = new Trajectory(header.split(","));
+				String line;
+				while ((line = in.readLine()) != null) {
+					final String[] values = line.split(",");
+					final double[] row = new double[values.length];
+					for (int i = 0; i < values.length; i++) {
+						row[i] = Double.parseDouble(values[i]);
+					}
+					trajectory.rows.add(row);
+				}
+				return trajectory;
+			}
+		}
+
+	}
+
+}
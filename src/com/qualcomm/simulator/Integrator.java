@@ -0,0 +1,89 @@
+package com.qualcomm.simulator;
+
+/**
+ * Advances the robot's pose through one physics step, with the drive speed and turn rate held for the whole step.
+ * The pose is {x, y, rotation} in inches and degrees; rotation 0 faces +x and field y points down, so heading
+ * {@code t} moves along {@code (cos t, -sin t)}. Rotation is left for the caller to wrap.
+ */
+public interface Integrator {
+
+	public void integrate(float[] pose, double speed, double turnRate, double timeStep);
+
+	/**
+	 * Turns first, then moves along the new heading, in float as the simulator always has. The cheapest, and exact
+	 * only when driving straight or spinning in place.
+	 */
+	public static Integrator euler() {
+		return (pose, speed, turnRate, timeStep) -> {
+			float rotation = (float) (pose[2] + turnRate * timeStep);
+			while (rotation >= 360f)
+				rotation -= 360f;
+			while (rotation < 0f)
+				rotation += 360;
+
+			final float distance = (float) (speed * timeStep);
+			pose[0] += (float) (distance * Math.cos(Math.toRadians(rotation)));
+			pose[1] -= (float) (distance * Math.sin(Math.toRadians(rotation)));
+			pose[2] = rotation;
+		};
+	}
+
+	/** Moves along the heading halfway through the step. Second order. */
+	public static Integrator midpoint() {
+		return (pose, speed, turnRate, timeStep) -> {
+			final double start = Math.toRadians(pose[2]), turn = Math.toRadians(turnRate) * timeStep;
+			final double middle = start + turn / 2, distance = speed * timeStep;
+			pose[0] += (float) (distance * Math.cos(middle));
+			pose[1] -= (float) (distance * Math.sin(middle));
+			pose[2] += (float) Math.toDegrees(turn);
+		};
+	}
+
+	/**
+	 * Classic fourth-order Runge-Kutta. The heading does not depend on position, so its two middle stages coincide
+	 * and it comes down to Simpson's rule over the step.
+	 */
+	public static Integrator rk4() {
+		return (pose, speed, turnRate, timeStep) -> {
+			final double start = Math.toRadians(pose[2]), turn = Math.toRadians(turnRate) * timeStep;
+			final double middle = start + turn / 2, end = start + turn, distance = speed * timeStep;
+			pose[0] += (float) (distance * (Math.cos(start) + 4 * Math.cos(middle) + Math.cos(end)) / 6);
+			pose[1] -= (float) (distance * (Math.sin(start) + 4 * Math.sin(middle) + Math.sin(end)) / 6);
+			pose[2] += (float) Math.toDegrees(turn);
+		};
+	}
+
+	/** Follows the circular arc the held speeds trace, which is exact for them. */
+	public static Integrator arc() {
+		return (pose, speed, turnRate, timeStep) -> {
+			final double start = Math.toRadians(pose[2]), turn = Math.toRadians(turnRate) * timeStep;
+			final double end = start + turn, distance = speed * timeStep;
+			if (Math.abs(turn) < 1e-9) {
+				pose[0] += (float) (distance * Math.cos(start));
+				pose[1] -= (float) (distance * Math.sin(start));
+			} else {
+				final double radius = distance / turn;
+				pose[0] += (float) (radius * (Math.sin(end) - Math.sin(start)));
+				pose[1] += (float) (radius * (Math.cos(end) - Math.cos(start)));
+			}
+			pose[2] += (float) Math.toDegrees(turn);
+		};
+	}
+
+	/** {@code euler}, {@code midpoint}, {@code rk4} or {@code arc}. */
+	public static Integrator forName(final String name) {
+		switch (name) {
+			case "euler":
+				return euler();
+			case "midpoint":
+				return midpoint();
+			case "rk4":
+				return rk4();
+			case "arc":
+				return arc();
+			default:
+				throw new IllegalArgumentException("unknown integrator: " + name);
+		}
+	}
+
+}
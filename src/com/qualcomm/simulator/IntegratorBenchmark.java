@@ -0,0 +1,124 @@
+package com.qualcomm.simulator;
+
+import java.util.function.Supplier;
+
+import com.qualcomm.ftcrobotcontroller.opmodes.ExampleAutonomous;
+import com.qualcomm.ftcrobotcontroller.opmodes.ExampleOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.OpMode;
+
+/**
+ * Compares the {@link Integrator}s: raw steps per second, how far each strays from the closed-form circle when the
+ * speeds are held, and how far each ends a set of standard manoeuvres from a reference run with the exact arc
+ * integrator at {@link #REFERENCE_RATE}, at several physics rates. The manoeuvres include the motor model and the op
+ * mode's loop timing, which at low physics rates add more error than the pose integration does. Run with
+ * {@code IntegratorBenchmark} and pick the cheapest combination whose error is small enough.
+ */
+public class IntegratorBenchmark {
+
+	public static final double REFERENCE_RATE = 20000;
+	public static final double[] PHYSICS_RATES = {50, 100, 250, 1000};
+	private static final String[] INTEGRATORS = {"euler", "midpoint", "rk4", "arc"};
+	private static final double TIME_STEP = 1d / 60;
+
+	// Every throughput run's final poses, printed at the end so the JIT can't drop the runs
+	private static double checksum = 0;
+
+	static class Manoeuvre {
+		final String name;
+		final Supplier<? extends OpMode> opModes;
+		final String script;
+		final double duration;
+
+		Manoeuvre(final String name, final Supplier<? extends OpMode> opModes, final String script, final double duration) {
+			this.name = name;
+			this.opModes = opModes;
+			this.script = script;
+			this.duration = duration;
+		}
+
+		/** Final x, y and rotation. */
+		float[] run(final Integrator integrator, final double physicsRate) {
+			final Simulation simulation = new Simulation(opModes.get());
+			simulation.setIntegrator(integrator);
+			simulation.setPhysicsRate(physicsRate);
+			if (script != null) simulation.setGamepadSource(new ScriptedGamepads(script));
+
+			simulation.init();
+			final long steps = Math.round(duration / TIME_STEP);
+			for (long i = 0; i < steps; i++) {
+				simulation.step(TIME_STEP);
+			}
+			simulation.stop();
+			return new float[] {simulation.getRobotX(), simulation.getRobotY(), simulation.getRobotRotation()};
+		}
+	}
+
+	static Manoeuvre[] manoeuvres() {
+		return new Manoeuvre[] {
+			new Manoeuvre("straight", ExampleOpMode::new, "left_stick_y=-1 at 0s for 2s", 3),
+			new Manoeuvre("arc", ExampleOpMode::new, "left_stick_y=-0.6 at 0s for 4s; left_stick_x=0.4 at 0s for 4s", 5),
+			new Manoeuvre("spin", ExampleOpMode::new, "left_stick_x=1 at 0s for 2s", 3),
+			new Manoeuvre("s-curve", ExampleOpMode::new, "left_stick_y=-0.7 at 0s for 5s; left_stick_x=0.6 at 0s; ramp left_stick_x=-0.6 at 5s; left_stick_x=0 at 5s", 6),
+			new Manoeuvre("autonomous", ExampleAutonomous::new, null, 8),
+		};
+	}
+
+	/** Integrator steps per second on a spread of speeds and turn rates, nothing else. */
+	static double measureThroughput(final Integrator integrator) {
+		final float[] pose = {72, 72, 90};
+		final int steps = 5000000;
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < 5; round++) {
+			final long start = System.nanoTime();
+			for (int i = 0; i < steps; i++) {
+				integrator.integrate(pose, 20 * ((i & 7) - 3.5) / 3.5, 30 * ((i >> 3 & 7) - 3.5) / 3.5, 0.001);
+				if (pose[2] >= 360f || pose[2] < 0f) pose[2] = 90;
+			}
+			best = Math.min(best, System.nanoTime() - start);
+			checksum += pose[0] + pose[1] + pose[2];
+		}
+		return steps / (best * 1e-9);
+	}
+
+	/** Inches from the closed form after driving a 20 in/s, 45 degree/s circle for 5 s at {@code physicsRate}. */
+	static double measureCircleError(final Integrator integrator, final double physicsRate) {
+		final double speed = 20, turnRate = 45, duration = 5;
+		final float[] pose = {72, 72, 0};
+		final long steps = Math.round(duration * physicsRate);
+		for (long i = 0; i < steps; i++) {
+			integrator.integrate(pose, speed, turnRate, 1 / physicsRate);
+		}
+
+		final double radius = speed / Math.toRadians(turnRate), end = Math.toRadians(turnRate * duration);
+		return Math.hypot(pose[0] - (72 + radius * Math.sin(end)), pose[1] - (72 + radius * (Math.cos(end) - 1)));
+	}
+
+	public static void main(final String[] args) {
+		final Manoeuvre[] manoeuvres = manoeuvres();
+		final float[][] reference = new float[manoeuvres.length][];
+		for (int m = 0; m < manoeuvres.length; m++) {
+			reference[m] = manoeuvres[m].run(Integrator.arc(), REFERENCE_RATE);
+		}
+
+		System.out.println(String.format("%-9s %12s %8s %10s %10s %10s %10s", "", "steps/s", "physics", "circle in", "mean in", "max in", "max deg"));
+		for (final String name : INTEGRATORS) {
+			final Integrator integrator = Integrator.forName(name);
+			final double throughput = measureThroughput(integrator);
+
+			for (final double rate : PHYSICS_RATES) {
+				double sumPosition = 0, maxPosition = 0, maxRotation = 0;
+				for (int m = 0; m < manoeuvres.length; m++) {
+					final float[] pose = manoeuvres[m].run(integrator, rate);
+					final double position = Math.hypot(pose[0] - reference[m][0], pose[1] - reference[m][1]);
+					sumPosition += position;
+					maxPosition = Math.max(maxPosition, position);
+					maxRotation = Math.max(maxRotation, BatchEvaluator.angleDifference(pose[2], reference[m][2]));
+				}
+
+				System.out.println(String.format("%-9s %12.3g %6.0fHz %10.5f %10.4f %10.4f %10.4f", rate == PHYSICS_RATES[0] ? name : "", throughput, rate, measureCircleError(integrator, rate), sumPosition / manoeuvres.length, maxPosition, maxRotation));
+			}
+		}
+		System.out.println(String.format("checksum %.6g", checksum));
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.qualcomm.simulator;
+
+/**
+ * When a {@link Simulation} runs its op mode's next loop. A Control Hub does not loop at a fixed rate: each loop takes
+ * as long as the op mode's own code plus the hardware reads and writes it makes, usually somewhere from 50 to 300 Hz.
+ */
+public interface LoopTiming {
+
+	/**
+	 * Simulated seconds from the start of loop number {@code loop} to the start of the next. {@code loopNanos} is how
+	 * long that loop's code took to run on this machine.
+	 */
+	public double getPeriod(long loop, long loopNanos);
+
+	public static LoopTiming fixed(final double rate) {
+		if (rate <= 0) throw new IllegalArgumentException("rate must be positive");
+
+		final double period = 1 / rate;
+		return (loop, loopNanos) -> period;
+	}
+
+	/**
+	 * A rate drawn uniformly between {@code minRate} and {@code maxRate} for every loop. The draw depends only on the
+	 * seed and the loop number, so runs and restored snapshots repeat exactly.
+	 */
+	public static LoopTiming random(final double minRate, final double maxRate, final long seed) {
+		if (minRate <= 0 || maxRate < minRate) throw new IllegalArgumentException(String.format("invalid rate range: %f to %f", minRate, maxRate));
+
+		return (loop, loopNanos) -> {
+			// SplitMix64 of the loop number
+			long z = seed + (loop + 1) * 0x9E3779B97F4A7C15L;
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			z ^= z >>> 31;
+			final double fraction = (z >>> 11) * 0x1.0p-53;
+			return 1 / (minRate + (maxRate - minRate) * fraction);
+		};
+	}
+
+	/**
+	 * The op mode's measured cost times {@code slowdown}, for a hub slower than this machine, plus {@code overhead}
+	 * seconds of hardware traffic per loop, but never faster than {@code maxRate}. Runs are only as repeatable as the
+	 * measurements.
+	 */
+	public static LoopTiming measured(final double slowdown, final double overhead, final double maxRate) {
+		if (slowdown < 0 || overhead < 0 || maxRate <= 0) throw new IllegalArgumentException("slowdown and overhead must not be negative and maxRate must be positive");
+
+		final double minPeriod = 1 / maxRate;
+		return (loop, loopNanos) -> Math.max(minPeriod, overhead + loopNanos * 1e-9 * slowdown);
+	}
+
+}
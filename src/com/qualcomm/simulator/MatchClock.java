@@ -0,0 +1,110 @@
+package com.qualcomm.simulator;
+
+/**
+ * Runs the periods of a match against the simulation clock: 30 s of autonomous, 8 s to pick up the controllers, and
+ * 2 min of driver control. The op mode is stopped when autonomous or the match ends and initialized again when driver
+ * control begins, so whatever runs during a period gets exactly that period's time, however fast the simulation runs.
+ *
+ * The clock acts only when the period changes, so an op mode stopped or restarted by hand is left alone until the
+ * next period begins.
+ */
+public class MatchClock {
+
+	public enum Period {
+		AUTONOMOUS, TRANSITION, TELEOP, ENDED
+	}
+
+	public static final double AUTONOMOUS_SECONDS = 30, TRANSITION_SECONDS = 8, TELEOP_SECONDS = 120;
+
+	private final Period[] periods;
+	// When each period ends, in seconds from the start of the match
+	private final double[] ends;
+
+	private double startClock = Double.NaN;
+	private Period period;
+
+	private MatchClock(final Period[] periods, final double[] durations) {
+		this.periods = periods;
+		ends = new double[durations.length];
+		double end = 0;
+		for (int i = 0; i < durations.length; i++) {
+			end += durations[i];
+			ends[i] = end;
+		}
+	}
+
+	/** Autonomous, the transition and driver control. */
+	public static MatchClock full() {
+		return new MatchClock(new Period[] {Period.AUTONOMOUS, Period.TRANSITION, Period.TELEOP}, new double[] {AUTONOMOUS_SECONDS, TRANSITION_SECONDS, TELEOP_SECONDS});
+	}
+
+	public static MatchClock autonomous() {
+		return new MatchClock(new Period[] {Period.AUTONOMOUS}, new double[] {AUTONOMOUS_SECONDS});
+	}
+
+	public static MatchClock teleop() {
+		return new MatchClock(new Period[] {Period.TELEOP}, new double[] {TELEOP_SECONDS});
+	}
+
+	/** {@code full}, {@code auto} or {@code teleop}. */
+	public static MatchClock forName(final String name) {
+		switch (name) {
+			case "full":
+				return full();
+			case "auto":
+				return autonomous();
+			case "teleop":
+				return teleop();
+			default:
+				throw new IllegalArgumentException("unknown match: " + name);
+		}
+	}
+
+	/** Starts the match now, initializing the op mode if it isn't running. */
+	public void start(final Simulation simulation) {
+		startClock = simulation.getClock();
+		period = null;
+		update(simulation);
+	}
+
+	public boolean isStarted() {
+		return !Double.isNaN(startClock);
+	}
+
+	/** Call after every step; stops or initializes the op mode when a period begins. */
+	public void update(final Simulation simulation) {
+		if (!isStarted()) return;
+
+		final Period current = getPeriod(simulation.getClock());
+		if (current == period) return;
+		period = current;
+
+		if (current == Period.AUTONOMOUS || current == Period.TELEOP) {
+			simulation.init();
+		} else {
+			simulation.stop();
+		}
+	}
+
+	public Period getPeriod(final double clock) {
+		final int index = getIndex(clock);
+		return index < periods.length ? periods[index] : Period.ENDED;
+	}
+
+	/** Seconds left in the period at {@code clock}, or 0 once the match is over. */
+	public double getRemaining(final double clock) {
+		final int index = getIndex(clock);
+		return index < periods.length ? ends[index] - (clock - startClock) : 0;
+	}
+
+	private int getIndex(final double clock) {
+		// Before the start, as after a seek back, counts as the first period
+		final double elapsed = clock - startClock;
+		int index = 0;
+		while (index < ends.length && elapsed >= ends[index]) {
+			index++;
+		}
+		return index;
+	}
+
+}
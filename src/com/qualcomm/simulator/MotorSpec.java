@@ -0,0 +1,73 @@
+package com.qualcomm.simulator;
+
+/**
+ * Datasheet constants of a DC gearmotor, measured at the output shaft, and the brushed-DC model derived from them:
+ * winding resistance from the stall current, torque constant from the stall torque, back-EMF constant from the free
+ * speed and viscous friction from the free current.
+ */
+public class MotorSpec {
+
+	public static final MotorSpec GOBILDA_312 = new MotorSpec("goBILDA 5203 312 rpm", 2.38, 312, 9.2, 0.25, 12, 537.7);
+	public static final MotorSpec NEVEREST_40 = new MotorSpec("NeveRest 40", 2.47, 160, 11.5, 0.4, 12, 1120);
+	public static final MotorSpec REV_HD_HEX_40 = new MotorSpec("REV HD Hex 40:1", 4.2, 150, 8.5, 0.4, 12, 1120);
+
+	private final String name;
+	private final double stallTorque, freeSpeed, stallCurrent, freeCurrent, nominalVoltage, ticksPerRevolution;
+
+	/**
+	 * @param stallTorque newton metres
+	 * @param freeSpeed revolutions per minute at {@code nominalVoltage}
+	 * @param stallCurrent amps
+	 * @param freeCurrent amps
+	 * @param nominalVoltage volts the other figures were measured at
+	 * @param ticksPerRevolution encoder counts per output revolution
+	 */
+	public MotorSpec(final String name, final double stallTorque, final double freeSpeed, final double stallCurrent, final double freeCurrent, final double nominalVoltage, final double ticksPerRevolution) {
+		this.name = name;
+		this.stallTorque = stallTorque;
+		this.freeSpeed = freeSpeed * 2 * Math.PI / 60;
+		this.stallCurrent = stallCurrent;
+		this.freeCurrent = freeCurrent;
+		this.nominalVoltage = nominalVoltage;
+		this.ticksPerRevolution = ticksPerRevolution;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	/** Radians per second with no load at the nominal voltage. */
+	public double getFreeSpeed() {
+		return freeSpeed;
+	}
+
+	public double getNominalVoltage() {
+		return nominalVoltage;
+	}
+
+	public double getTicksPerRevolution() {
+		return ticksPerRevolution;
+	}
+
+	/** Ohms. */
+	public double getResistance() {
+		return nominalVoltage / stallCurrent;
+	}
+
+	/** Newton metres per amp. */
+	public double getTorqueConstant() {
+		return stallTorque / stallCurrent;
+	}
+
+	/** Volts per radian per second. */
+	public double getBackEmfConstant() {
+		return (nominalVoltage - freeCurrent * getResistance()) / freeSpeed;
+	}
+
+	/** Newton metres per radian per second, chosen so the unloaded motor settles at its free speed. */
+	public double getFriction() {
+		return getTorqueConstant() * freeCurrent / freeSpeed;
+	}
+
+}
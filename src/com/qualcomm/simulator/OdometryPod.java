@@ -0,0 +1,88 @@
+package com.qualcomm.simulator;
+
+import java.awt.Color;
+import java.awt.Container;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * One tracking wheel of a {@link SimOdometry}. It only counts travel along its rotation, which is measured like every
+ * other component's: 0 rolls with the robot driving forward, 90 with the robot strafing left.
+ */
+public class OdometryPod implements RobotComponent {
+
+	// goBILDA's pod: a 2000 count per revolution encoder on a 48 mm wheel
+	public static final float DEFAULT_TICKS_PER_INCH = (float) (2000 / (Math.PI * 48 / 25.4));
+
+	private final String name;
+	private final float x, y, rotation;
+	private final float ticksPerInch;
+	volatile int count = 0;
+
+	private final BufferedImage image;
+	private static final int width = IMAGE_SCALE / 2, height = IMAGE_SCALE;
+
+	public OdometryPod(final float x, final float y, final float rotation, final String name) {
+		this(x, y, rotation, name, DEFAULT_TICKS_PER_INCH);
+	}
+
+	public OdometryPod(final float x, final float y, final float rotation, final String name, final float ticksPerInch) {
+		this.name = name;
+		this.x = x;
+		this.y = y;
+		this.rotation = rotation;
+		this.ticksPerInch = ticksPerInch;
+
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+		final Graphics2D g = image.createGraphics();
+		g.setColor(Color.DARK_GRAY);
+		g.fillRoundRect(0, 0, width, height, width / 2, width / 2);
+		g.setColor(Color.GREEN);
+		g.fillRect(width / 4, height / 2 - 1, width / 2, 2);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	@Override
+	public Container getInfoBox() {
+		return RobotComponent.createInfoBox(this, "Count: " + count, String.format("Distance: %.2f in", count / ticksPerInch));
+	}
+
+	@Override
+	public BufferedImage getImage() {
+		return image;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public float getX() {
+		return x;
+	}
+
+	@Override
+	public float getY() {
+		return y;
+	}
+
+	@Override
+	public float getRotation() {
+		return rotation;
+	}
+
+	@Override
+	public long getVersion() {
+		return count;
+	}
+
+	public float getTicksPerInch() {
+		return ticksPerInch;
+	}
+
+}
@@ -0,0 +1,6 @@
+package com.qualcomm.simulator;
+
+/** The parts of a simulator tick that are timed separately. */
+public enum Phase {
+	PHYSICS, INPUT, OP_MODE, RENDER
+}
@@ -0,0 +1,68 @@
+package com.qualcomm.simulator;
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+/**
+ * Plays back the gamepads of a session recorded by {@link SessionRecorder}, holding each recorded value until the
+ * next one. The columns are read into memory once, so one playback can be shared by runs on several threads.
+ */
+public class RecordedGamepads implements GamepadSource {
+
+	private final double[] clock;
+	// Row-major, GAMEPAD_SIZE slots per row, in snapshot layout
+	private final double[] gamepad1, gamepad2;
+	private final double start;
+
+	public RecordedGamepads(final Path session) throws IOException {
+		this(session, 0);
+	}
+
+	/** Plays the recording from {@code start} clock seconds into it. */
+	public RecordedGamepads(final Path session, final double start) throws IOException {
+		this.start = start;
+
+		try (final SessionReader reader = new SessionReader(session)) {
+			final int rows = (int) reader.getRowCount();
+			clock = new double[rows];
+			read(reader, "clock", clock, 0, 1);
+
+			gamepad1 = new double[rows * WorldSnapshot.GAMEPAD_SIZE];
+			gamepad2 = new double[rows * WorldSnapshot.GAMEPAD_SIZE];
+			for (int i = 0; i < WorldSnapshot.GAMEPAD_SIZE; i++) {
+				read(reader, "gamepad1." + WorldSnapshot.GAMEPAD_SLOTS[i], gamepad1, i, WorldSnapshot.GAMEPAD_SIZE);
+				read(reader, "gamepad2." + WorldSnapshot.GAMEPAD_SLOTS[i], gamepad2, i, WorldSnapshot.GAMEPAD_SIZE);
+			}
+		}
+	}
+
+	@Override
+	public void update(final double time, final Gamepad gamepad1, final Gamepad gamepad2) {
+		if (clock.length == 0) return;
+
+		// The last row at or before the requested time
+		int row = Arrays.binarySearch(clock, start + time);
+		if (row < 0) row = Math.max(0, -row - 2);
+
+		WorldSnapshot.readGamepad(gamepad1, this.gamepad1, row * WorldSnapshot.GAMEPAD_SIZE);
+		WorldSnapshot.readGamepad(gamepad2, this.gamepad2, row * WorldSnapshot.GAMEPAD_SIZE);
+	}
+
+	private static void read(final SessionReader reader, final String name, final double[] values, final int offset, final int stride) throws IOException {
+		final int column = reader.getColumn(name);
+		if (column < 0) throw new IOException("session has no " + name + " column");
+
+		int index = offset;
+		for (int block = 0; block < reader.getBlockCount(); block++) {
+			final DoubleBuffer buffer = reader.getValues(block, column);
+			for (int row = 0; row < buffer.limit(); row++, index += stride) {
+				values[index] = buffer.get(row);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.qualcomm.simulator;
+
+/**
+ * A {@link CoverageMap} that can take back what was added after a frame, so rewinding a session and driving on from
+ * an earlier frame doesn't count the abandoned frames as well as the ones that replace them. Every add is journalled
+ * under the frame set with {@link #setFrame}; {@link #rewind} subtracts the adds of later frames and {@link #forget}
+ * drops the journal for frames that can no longer be rewound to.
+ *
+ * The map can still be read from any thread, but only the thread stepping the simulation may add to it.
+ */
+public class RewindableCoverageMap extends CoverageMap {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private long frame = 0;
+	// A ring of adds, oldest at start
+	private long[] frames = new long[INITIAL_CAPACITY];
+	private int[] cells = new int[INITIAL_CAPACITY];
+	private long[] added = new long[INITIAL_CAPACITY];
+	private int start = 0, count = 0;
+
+	/** Journals the adds that follow under {@code frame}. */
+	public void setFrame(final long frame) {
+		this.frame = frame;
+	}
+
+	@Override
+	public void add(final int cell, final long nanos) {
+		super.add(cell, nanos);
+		if (cell < 0 || nanos == 0) return;
+
+		if (count == frames.length) grow();
+		final int index = (start + count) % frames.length;
+		frames[index] = frame;
+		cells[index] = cell;
+		added[index] = nanos;
+		count++;
+	}
+
+	/** Subtracts everything added after {@code frame}. */
+	public void rewind(final long frame) {
+		while (count > 0) {
+			final int index = (start + count - 1) % frames.length;
+			if (frames[index] <= frame) break;
+
+			super.add(cells[index], -added[index]);
+			count--;
+		}
+	}
+
+	/** Drops the journal for frames before {@code frame}; what they added stays on the map for good. */
+	public void forget(final long frame) {
+		while (count > 0 && frames[start] < frame) {
+			start = (start + 1) % frames.length;
+			count--;
+		}
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		start = 0;
+		count = 0;
+	}
+
+	private void grow() {
+		final long[] frames = new long[count * 2], added = new long[count * 2];
+		final int[] cells = new int[count * 2];
+		final int tail = count - start;
+		System.arraycopy(this.frames, start, frames, 0, tail);
+		System.arraycopy(this.frames, 0, frames, tail, start);
+		System.arraycopy(this.cells, start, cells, 0, tail);
+		System.arraycopy(this.cells, 0, cells, tail, start);
+		System.arraycopy(this.added, start, added, 0, tail);
+		System.arraycopy(this.added, 0, added, tail, start);
+		this.frames = frames;
+		this.cells = cells;
+		this.added = added;
+		start = 0;
+	}
+
+}
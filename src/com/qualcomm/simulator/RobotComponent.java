@@ -27,6 +27,14 @@ public interface RobotComponent {
 
 	public float getRotation();
 
+	/**
+	 * Changes whenever the component's image or info box would show something different. The window skips repainting
+	 * while the pose and every component's version stay the same.
+	 */
+	public default long getVersion() {
+		return 0;
+	}
+
 	public static Container createInfoBox(final RobotComponent comp, final String... values) {
 		final JPanel panel = new JPanel(new GridLayout(0, 1));
 		panel.setBorder(BorderFactory.createEmptyBorder(4, 4, 4, 4));
@@ -0,0 +1,204 @@
+package com.qualcomm.simulator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Locale;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+/**
+ * Gamepads driven by a short timeline script, compiled once into one sample per {@code 1 / rate} seconds so
+ * {@link #update} is a single array lookup. Statements are separated by commas, semicolons or new lines, and
+ * {@code #} starts a comment:
+ *
+ * <pre>
+ * t=0.5s left_stick_y=-1 for 2s     # hold the stick from 0.5 s to 2.5 s, then let go
+ * press a at 3s                     # tap a for 0.1 s
+ * press gamepad2.x at 4s for 1s
+ * right_stick_x=0 at 5s, ramp right_stick_x=1 at 6s
+ * </pre>
+ *
+ * {@code name=value at T} sets an axis or button from T until its next keyframe; with {@code ramp} in front the
+ * value is instead interpolated linearly from the previous keyframe. {@code for D} returns to zero D seconds later.
+ * {@code t=T} may lead a statement in place of {@code at T}. Times are seconds, with an optional {@code s} or
+ * {@code ms}. Names are the {@link Gamepad} fields, on gamepad1 unless prefixed with {@code gamepad2.}.
+ */
+public class ScriptedGamepads implements GamepadSource {
+
+	public static final int DEFAULT_RATE = 200;
+	public static final double TAP = 0.1;
+
+	static final String[] AXES = {"left_stick_x", "left_stick_y", "right_stick_x", "right_stick_y", "left_trigger", "right_trigger"};
+	// In bit order from the highest, as WorldSnapshot packs them
+	static final String[] BUTTONS = {"left_stick_button", "right_stick_button", "dpad_up", "dpad_down", "dpad_left", "dpad_right", "a", "b", "x", "y", "guide", "start", "back", "left_bumper", "right_bumper"};
+	private static final int CHANNELS = AXES.length + BUTTONS.length;
+
+	private final int rate, samples;
+	// Row-major, GAMEPAD_SIZE slots per sample, in snapshot layout
+	private final double[] gamepad1, gamepad2;
+
+	public ScriptedGamepads(final String script) {
+		this(script, DEFAULT_RATE);
+	}
+
+	public ScriptedGamepads(final String script, final int rate) {
+		this.rate = rate;
+
+		// Keyframes per channel of both gamepads: time, value, ramp
+		final ArrayList<ArrayList<double[]>> keyframes = new ArrayList<ArrayList<double[]>>();
+		for (int i = 0; i < 2 * CHANNELS; i++) {
+			keyframes.add(new ArrayList<double[]>());
+		}
+
+		double end = 0;
+		for (final String line : script.split("\n")) {
+			final int comment = line.indexOf('#');
+			for (final String statement : (comment < 0 ? line : line.substring(0, comment)).split("[,;]")) {
+				if (!statement.trim().isEmpty()) end = Math.max(end, parse(statement.trim(), keyframes));
+			}
+		}
+
+		samples = (int) Math.ceil(end * rate) + 1;
+		gamepad1 = new double[samples * WorldSnapshot.GAMEPAD_SIZE];
+		gamepad2 = new double[samples * WorldSnapshot.GAMEPAD_SIZE];
+		for (int channel = 0; channel < 2 * CHANNELS; channel++) {
+			final ArrayList<double[]> frames = keyframes.get(channel);
+			// Stable, so a later statement at the same time wins
+			frames.sort((a, b) -> Double.compare(a[0], b[0]));
+			sample(frames, channel < CHANNELS ? gamepad1 : gamepad2, channel % CHANNELS);
+		}
+	}
+
+	public static ScriptedGamepads read(final Path script) throws IOException {
+		return new ScriptedGamepads(new String(Files.readAllBytes(script), StandardCharsets.UTF_8));
+	}
+
+	/** Seconds until the script has nothing left to change. */
+	public double getDuration() {
+		return (samples - 1) / (double) rate;
+	}
+
+	@Override
+	public void update(final double clock, final Gamepad gamepad1, final Gamepad gamepad2) {
+		final int sample = Math.max(0, Math.min(samples - 1, (int) (clock * rate)));
+		WorldSnapshot.readGamepad(gamepad1, this.gamepad1, sample * WorldSnapshot.GAMEPAD_SIZE);
+		WorldSnapshot.readGamepad(gamepad2, this.gamepad2, sample * WorldSnapshot.GAMEPAD_SIZE);
+	}
+
+	// Adds one statement's keyframes and returns the last time it touches
+	private static double parse(final String statement, final ArrayList<ArrayList<double[]>> keyframes) {
+		final String[] words = statement.toLowerCase(Locale.ROOT).split("\\s+");
+		String name = null;
+		double value = 1, time = Double.NaN, duration = Double.NaN;
+		boolean ramp = false, press = false;
+
+		for (int i = 0; i < words.length; i++) {
+			final String word = words[i];
+			if (word.equals("at") || word.equals("for")) {
+				if (i + 1 == words.length) throw error(statement, "'" + word + "' needs a time");
+				final double seconds = parseTime(statement, words[++i]);
+				if (word.equals("at")) time = seconds; else duration = seconds;
+			} else if (word.startsWith("t=")) {
+				time = parseTime(statement, word.substring(2));
+			} else if (word.equals("ramp")) {
+				ramp = true;
+			} else if (word.equals("press")) {
+				press = true;
+			} else if (name == null) {
+				final int equals = word.indexOf('=');
+				name = equals < 0 ? word : word.substring(0, equals);
+				if (equals >= 0) {
+					try {
+						value = Double.parseDouble(word.substring(equals + 1));
+					} catch (final NumberFormatException e) {
+						throw error(statement, "bad value '" + word.substring(equals + 1) + "'");
+					}
+				} else if (!press) {
+					throw error(statement, "'" + word + "' needs a value");
+				}
+			} else {
+				throw error(statement, "unexpected '" + word + "'");
+			}
+		}
+
+		if (name == null) throw error(statement, "no axis or button");
+		if (Double.isNaN(time)) throw error(statement, "no time");
+		if (press && Double.isNaN(duration)) duration = TAP;
+
+		final ArrayList<double[]> frames = keyframes.get(channel(statement, name));
+		frames.add(new double[] {time, value, ramp ? 1 : 0});
+		if (Double.isNaN(duration)) return time;
+
+		frames.add(new double[] {time + duration, 0, 0});
+		return time + duration;
+	}
+
+	private static int channel(final String statement, final String name) {
+		int base = 0;
+		String field = name;
+		if (name.startsWith("gamepad1.")) {
+			field = name.substring(9);
+		} else if (name.startsWith("gamepad2.")) {
+			field = name.substring(9);
+			base = CHANNELS;
+		}
+
+		for (int i = 0; i < AXES.length; i++) {
+			if (AXES[i].equals(field)) return base + i;
+		}
+		for (int i = 0; i < BUTTONS.length; i++) {
+			if (BUTTONS[i].equals(field)) return base + AXES.length + i;
+		}
+		throw error(statement, "no gamepad field '" + name + "'");
+	}
+
+	private static double parseTime(final String statement, final String text) {
+		try {
+			if (text.endsWith("ms")) return Double.parseDouble(text.substring(0, text.length() - 2)) / 1000;
+			if (text.endsWith("s")) return Double.parseDouble(text.substring(0, text.length() - 1));
+			return Double.parseDouble(text);
+		} catch (final NumberFormatException e) {
+			throw error(statement, "bad time '" + text + "'");
+		}
+	}
+
+	private static IllegalArgumentException error(final String statement, final String message) {
+		return new IllegalArgumentException(String.format("%s in \"%s\"", message, statement));
+	}
+
+	private void sample(final ArrayList<double[]> frames, final double[] data, final int channel) {
+		if (frames.isEmpty()) return;
+
+		final boolean button = channel >= AXES.length;
+		final int slot = button ? WorldSnapshot.GAMEPAD_SIZE - 1 : channel;
+		final int bit = button ? 1 << BUTTONS.length - 1 - (channel - AXES.length) : 0;
+
+		int next = 0;
+		double previousTime = 0, previousValue = 0;
+		for (int sample = 0; sample < samples; sample++) {
+			final double time = sample / (double) rate;
+			while (next < frames.size() && frames.get(next)[0] <= time) {
+				previousTime = frames.get(next)[0];
+				previousValue = frames.get(next)[1];
+				next++;
+			}
+
+			double value = previousValue;
+			if (next < frames.size() && frames.get(next)[2] != 0) {
+				final double[] target = frames.get(next);
+				value = previousValue + (target[1] - previousValue) * (time - previousTime) / (target[0] - previousTime);
+			}
+
+			final int index = sample * WorldSnapshot.GAMEPAD_SIZE + slot;
+			if (!button) {
+				data[index] = value;
+			} else if (value != 0) {
+				data[index] = (int) data[index] | bit;
+			}
+		}
+	}
+
+}
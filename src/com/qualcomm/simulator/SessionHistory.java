@@ -0,0 +1,165 @@
+package com.qualcomm.simulator;
+
+import java.util.Arrays;
+
+/**
+ * A bounded history of {@link WorldSnapshot}s for rewinding a session. Every {@code keyframeInterval} frames a full
+ * copy of the snapshot is kept as a keyframe; the frames in between only store the slots that changed since the frame
+ * before. Seeking copies the nearest keyframe and replays at most {@code keyframeInterval - 1} deltas, so it costs the
+ * same wherever in the history it lands.
+ *
+ * Segments (one keyframe plus its deltas) live in a ring, and once it is full the oldest segment is reused for the
+ * newest, so a session of any length holds at most {@code maxFrames} frames.
+ */
+public class SessionHistory {
+
+	private static final int INITIAL_DELTA_CAPACITY = 256;
+	// Deltas store slot numbers as chars
+	public static final int MAX_SLOTS = Character.MAX_VALUE + 1;
+
+	private final int slots, keyframeInterval;
+	private final Segment[] segments;
+	private final double[] previous;
+
+	private long firstFrame = 0, nextFrame = 0;
+
+	public SessionHistory(final int slots, final int keyframeInterval, final int maxFrames) {
+		if (slots > MAX_SLOTS) throw new IllegalArgumentException(String.format("snapshots of %d slots are more than the %d a history can index", slots, MAX_SLOTS));
+		if (keyframeInterval < 1) throw new IllegalArgumentException("keyframeInterval must be at least 1");
+		if (maxFrames < keyframeInterval) throw new IllegalArgumentException("maxFrames must hold at least one keyframe interval");
+
+		this.slots = slots;
+		this.keyframeInterval = keyframeInterval;
+
+		// One extra segment so a full ring still holds maxFrames once the oldest segment starts being overwritten
+		segments = new Segment[(maxFrames + keyframeInterval - 1) / keyframeInterval + 1];
+		previous = new double[slots];
+	}
+
+	public void record(final WorldSnapshot snapshot) {
+		final double[] data = snapshot.data;
+		if (data.length != slots) throw new IllegalArgumentException("snapshot does not match this history");
+
+		final long segmentNumber = nextFrame / keyframeInterval;
+		final int index = (int) (segmentNumber % segments.length);
+		if (nextFrame % keyframeInterval == 0) {
+			if (segments[index] == null) segments[index] = new Segment(slots, keyframeInterval);
+			segments[index].reset(data);
+
+			// Drop the segment that was just overwritten from the readable range
+			final long oldestSegment = segmentNumber - segments.length + 1;
+			if (oldestSegment * keyframeInterval > firstFrame) firstFrame = oldestSegment * keyframeInterval;
+		} else {
+			segments[index].addDelta(previous, data);
+		}
+
+		System.arraycopy(data, 0, previous, 0, slots);
+		nextFrame++;
+	}
+
+	/** Fills {@code snapshot} with the recorded frame, which must be between {@link #getFirstFrame()} and {@link #getLastFrame()}. */
+	public void seek(final long frame, final WorldSnapshot snapshot) {
+		if (frame < firstFrame || frame >= nextFrame) {
+			throw new IndexOutOfBoundsException(String.format("frame %d is outside the recorded range %d..%d", frame, firstFrame, nextFrame - 1));
+		}
+
+		final Segment segment = segments[(int) (frame / keyframeInterval % segments.length)];
+		segment.apply((int) (frame % keyframeInterval), snapshot.data);
+	}
+
+	/** Forgets every frame after {@code frame}, so recording continues from it. */
+	public void truncate(final long frame) {
+		if (frame < firstFrame || frame >= nextFrame) return;
+
+		nextFrame = frame + 1;
+		final Segment segment = segments[(int) (frame / keyframeInterval % segments.length)];
+		segment.truncate((int) (frame % keyframeInterval), previous);
+	}
+
+	public void clear() {
+		firstFrame = 0;
+		nextFrame = 0;
+	}
+
+	public long getFirstFrame() {
+		return firstFrame;
+	}
+
+	public long getLastFrame() {
+		return nextFrame - 1;
+	}
+
+	public boolean isEmpty() {
+		return nextFrame == firstFrame;
+	}
+
+	/** Bytes held by keyframes and delta buffers, not counting object headers. */
+	public long getMemoryUsage() {
+		long bytes = (long) slots * 8;
+		for (final Segment segment : segments) {
+			if (segment != null) bytes += segment.getMemoryUsage();
+		}
+
+		return bytes;
+	}
+
+	private static class Segment {
+
+		private final double[] keyframe;
+		// deltaEnd[i] is the number of deltas that make up frames 1..i of this segment
+		private final int[] deltaEnd;
+		private char[] deltaSlot = new char[INITIAL_DELTA_CAPACITY];
+		private double[] deltaValue = new double[INITIAL_DELTA_CAPACITY];
+		private int frames, deltas;
+
+		Segment(final int slots, final int keyframeInterval) {
+			keyframe = new double[slots];
+			deltaEnd = new int[keyframeInterval];
+		}
+
+		void reset(final double[] data) {
+			System.arraycopy(data, 0, keyframe, 0, keyframe.length);
+			frames = 1;
+			deltas = 0;
+		}
+
+		void addDelta(final double[] previous, final double[] data) {
+			for (int slot = 0; slot < data.length; slot++) {
+				// Compare bit patterns so NaN and -0 round-trip exactly
+				if (Double.doubleToRawLongBits(data[slot]) != Double.doubleToRawLongBits(previous[slot])) {
+					if (deltas == deltaSlot.length) {
+						deltaSlot = Arrays.copyOf(deltaSlot, deltas * 2);
+						deltaValue = Arrays.copyOf(deltaValue, deltas * 2);
+					}
+
+					deltaSlot[deltas] = (char) slot;
+					deltaValue[deltas] = data[slot];
+					deltas++;
+				}
+			}
+
+			deltaEnd[frames++] = deltas;
+		}
+
+		void apply(final int frame, final double[] data) {
+			System.arraycopy(keyframe, 0, data, 0, keyframe.length);
+
+			final int end = frame == 0 ? 0 : deltaEnd[frame];
+			for (int i = 0; i < end; i++) {
+				data[deltaSlot[i]] = deltaValue[i];
+			}
+		}
+
+		void truncate(final int frame, final double[] previous) {
+			frames = frame + 1;
+			deltas = frame == 0 ? 0 : deltaEnd[frame];
+			apply(frame, previous);
+		}
+
+		long getMemoryUsage() {
+			return keyframe.length * 8L + deltaEnd.length * 4L + deltaSlot.length * 2L + deltaValue.length * 8L;
+		}
+
+	}
+
+}
@@ -0,0 +1,246 @@
+package com.qualcomm.simulator;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.DoubleBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Command-line queries over a recorded session. Time ranges are in simulated seconds of the {@code clock} column.
+ *
+ * <pre>
+ * SessionQuery &lt;file&gt;                                         columns, rows and time span
+ * SessionQuery &lt;file&gt; stats &lt;column&gt;... [from=s] [to=s]        count, min, max and mean
+ * SessionQuery &lt;file&gt; find &lt;column&gt;&lt;op&gt;&lt;value&gt; [from=s] [to=s]  every stretch where the condition holds
+ * SessionQuery &lt;file&gt; slice &lt;column&gt;... [from=s] [to=s] [every=n]  rows as CSV
+ * </pre>
+ *
+ * Conditions use one of {@code < <= > >= = !=}. Blocks whose zone maps rule out the time range or the condition are
+ * skipped without reading their values.
+ */
+public class SessionQuery {
+
+	private static final String CLOCK = "clock";
+	private static final String[] OPERATORS = {"<=", ">=", "!=", "<", ">", "="};
+
+	private final SessionReader reader;
+	private final int clock;
+	private double from = Double.NEGATIVE_INFINITY, to = Double.POSITIVE_INFINITY;
+	private int every = 1;
+	private long rowsRead = 0;
+
+	public SessionQuery(final SessionReader reader) {
+		this.reader = reader;
+		clock = reader.getColumn(CLOCK);
+		if (clock < 0) throw new IllegalArgumentException("session has no " + CLOCK + " column");
+	}
+
+	public static void main(final String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("usage: SessionQuery <file> [stats <column>... | find <column><op><value> | slice <column>...] [from=s] [to=s] [every=n]");
+			System.exit(2);
+		}
+
+		try (final SessionReader reader = new SessionReader(Paths.get(args[0]))) {
+			final SessionQuery query = new SessionQuery(reader);
+			final ArrayList<String> operands = new ArrayList<String>();
+			for (int i = 2; i < args.length; i++) {
+				if (args[i].startsWith("from=")) {
+					query.from = Double.parseDouble(args[i].substring(5));
+				} else if (args[i].startsWith("to=")) {
+					query.to = Double.parseDouble(args[i].substring(3));
+				} else if (args[i].startsWith("every=")) {
+					query.every = Math.max(1, Integer.parseInt(args[i].substring(6)));
+				} else {
+					operands.add(args[i]);
+				}
+			}
+
+			final long start = System.nanoTime();
+			final String command = args.length > 1 ? args[1] : "info";
+			if (command.equals("info")) {
+				query.info(System.out);
+			} else if (command.equals("stats")) {
+				query.stats(operands, System.out);
+			} else if (command.equals("find")) {
+				if (operands.size() != 1) throw new IllegalArgumentException("find takes one condition, such as battery.voltage<11");
+				query.find(operands.get(0), System.out);
+			} else if (command.equals("slice")) {
+				query.slice(operands, System.out);
+			} else {
+				throw new IllegalArgumentException("unknown command: " + command);
+			}
+			System.err.println(String.format("%d of %d rows read in %.1f ms", query.rowsRead, reader.getRowCount(), (System.nanoTime() - start) / 1e6));
+		}
+	}
+
+	public void info(final PrintStream out) {
+		out.println(String.format("%d rows in %d blocks", reader.getRowCount(), reader.getBlockCount()));
+		if (reader.getBlockCount() > 0) {
+			out.println(String.format("clock %.3fs to %.3fs", reader.getMin(0, clock), reader.getMax(reader.getBlockCount() - 1, clock)));
+		}
+		for (final String column : reader.getColumns()) {
+			out.println("  " + column);
+		}
+	}
+
+	public void stats(final ArrayList<String> names, final PrintStream out) {
+		final int[] columns = columns(names);
+		out.println(String.format("%-28s %10s %14s %14s %14s", "column", "count", "min", "max", "mean"));
+		for (final int column : columns) {
+			long count = 0;
+			double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY, sum = 0;
+			for (int block = 0; block < reader.getBlockCount(); block++) {
+				if (!overlaps(block)) continue;
+
+				final DoubleBuffer times = reader.getValues(block, clock), values = reader.getValues(block, column);
+				for (int row = 0; row < values.limit(); row++) {
+					final double time = times.get(row), value = values.get(row);
+					if (time < from || time > to || Double.isNaN(value)) continue;
+
+					count++;
+					sum += value;
+					if (value < min) min = value;
+					if (value > max) max = value;
+				}
+				rowsRead += values.limit();
+			}
+			out.println(String.format("%-28s %10d %14.4f %14.4f %14.4f", reader.getColumns()[column], count, min, max, count == 0 ? Double.NaN : sum / count));
+		}
+	}
+
+	/** Prints each stretch of rows where the condition holds, as its first and last clock time. */
+	public void find(final String condition, final PrintStream out) {
+		String operator = null;
+		int split = -1;
+		for (final String candidate : OPERATORS) {
+			split = condition.indexOf(candidate);
+			if (split > 0) {
+				operator = candidate;
+				break;
+			}
+		}
+		if (operator == null) throw new IllegalArgumentException("no operator in condition: " + condition);
+
+		final int column = columns(Collections.singletonList(condition.substring(0, split)))[0];
+		final double value = Double.parseDouble(condition.substring(split + operator.length()));
+
+		int matches = 0;
+		double first = Double.NaN, last = Double.NaN;
+		long rows = 0;
+		for (int block = 0; block < reader.getBlockCount(); block++) {
+			if (!overlaps(block) || !mayMatch(operator, reader.getMin(block, column), reader.getMax(block, column), value)) {
+				// A skipped block has no matching rows, so it ends any stretch in progress
+				if (rows > 0) {
+					print(out, first, last, rows);
+					matches++;
+					rows = 0;
+				}
+				continue;
+			}
+
+			final DoubleBuffer times = reader.getValues(block, clock), values = reader.getValues(block, column);
+			for (int row = 0; row < values.limit(); row++) {
+				final double time = times.get(row);
+				if (time >= from && time <= to && test(operator, values.get(row), value)) {
+					if (rows == 0) first = time;
+					last = time;
+					rows++;
+				} else if (rows > 0) {
+					print(out, first, last, rows);
+					matches++;
+					rows = 0;
+				}
+			}
+			rowsRead += values.limit();
+		}
+
+		if (rows > 0) {
+			print(out, first, last, rows);
+			matches++;
+		}
+		out.println(String.format("%d stretch(es) where %s", matches, condition));
+	}
+
+	public void slice(final ArrayList<String> names, final PrintStream out) {
+		final int[] columns = columns(names);
+		final StringBuilder line = new StringBuilder(CLOCK);
+		for (final int column : columns) {
+			line.append(',').append(reader.getColumns()[column]);
+		}
+		out.println(line);
+
+		final DoubleBuffer[] values = new DoubleBuffer[columns.length];
+		long index = 0;
+		for (int block = 0; block < reader.getBlockCount(); block++) {
+			if (!overlaps(block)) {
+				index += reader.getRows(block);
+				continue;
+			}
+
+			final DoubleBuffer times = reader.getValues(block, clock);
+			for (int i = 0; i < columns.length; i++) {
+				values[i] = reader.getValues(block, columns[i]);
+			}
+			for (int row = 0; row < times.limit(); row++, index++) {
+				final double time = times.get(row);
+				if (time < from || time > to || index % every != 0) continue;
+
+				line.setLength(0);
+				line.append(time);
+				for (final DoubleBuffer column : values) {
+					line.append(',').append(column.get(row));
+				}
+				out.println(line);
+			}
+			rowsRead += times.limit();
+		}
+	}
+
+	private boolean overlaps(final int block) {
+		return reader.getMax(block, clock) >= from && reader.getMin(block, clock) <= to;
+	}
+
+	private int[] columns(final List<String> names) {
+		if (names.isEmpty()) throw new IllegalArgumentException("name at least one column");
+
+		final int[] columns = new int[names.size()];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = reader.getColumn(names.get(i));
+			if (columns[i] < 0) throw new IllegalArgumentException("no such column: " + names.get(i));
+		}
+		return columns;
+	}
+
+	private static void print(final PrintStream out, final double first, final double last, final long rows) {
+		out.println(String.format("%10.3fs to %10.3fs  (%d rows)", first, last, rows));
+	}
+
+	// Whether any value between min and max could satisfy the condition
+	private static boolean mayMatch(final String operator, final double min, final double max, final double value) {
+		if (min > max) return operator.equals("!="); // every value in the block was NaN
+		switch (operator) {
+			case "<": return min < value;
+			case "<=": return min <= value;
+			case ">": return max > value;
+			case ">=": return max >= value;
+			case "=": return min <= value && value <= max;
+			default: return !(min == value && max == value);
+		}
+	}
+
+	private static boolean test(final String operator, final double actual, final double value) {
+		switch (operator) {
+			case "<": return actual < value;
+			case "<=": return actual <= value;
+			case ">": return actual > value;
+			case ">=": return actual >= value;
+			case "=": return actual == value;
+			default: return actual != value;
+		}
+	}
+
+}
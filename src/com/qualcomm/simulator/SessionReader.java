@@ -0,0 +1,124 @@
+package com.qualcomm.simulator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Reads a file written by {@link SessionRecorder}. The file is mapped rather than read, and {@link #getValues} hands
+ * out views of a column within a block without copying, so scans run at memory speed and only touch the columns they
+ * ask for.
+ */
+public class SessionReader implements Closeable {
+
+	private final FileChannel channel;
+	private final String[] columns;
+	private final int blockRows;
+	private final long headerSize, blockSize;
+	private final int chunkBlocks;
+	private final ArrayList<MappedByteBuffer> chunks = new ArrayList<MappedByteBuffer>();
+	private final int blockCount;
+	private final long rowCount;
+
+	public SessionReader(final Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+
+		final ByteBuffer fixed = ByteBuffer.allocate(SessionRecorder.FIXED_HEADER_SIZE);
+		channel.read(fixed, 0);
+		fixed.flip();
+		if (fixed.remaining() < SessionRecorder.FIXED_HEADER_SIZE || fixed.getLong() != SessionRecorder.MAGIC) throw new IOException(file + " is not a recorded session");
+
+		headerSize = fixed.getInt();
+		columns = new String[fixed.getInt()];
+		blockRows = fixed.getInt();
+
+		final ByteBuffer header = ByteBuffer.allocate((int) headerSize - SessionRecorder.FIXED_HEADER_SIZE);
+		channel.read(header, SessionRecorder.FIXED_HEADER_SIZE);
+		header.flip();
+		for (int i = 0; i < columns.length; i++) {
+			final byte[] name = new byte[header.getShort()];
+			header.get(name);
+			columns[i] = new String(name, StandardCharsets.UTF_8);
+		}
+
+		blockSize = SessionRecorder.BLOCK_HEADER_SIZE + 16L * columns.length + 8L * columns.length * blockRows;
+		chunkBlocks = (int) Math.max(1, Integer.MAX_VALUE / blockSize);
+		final long blocks = (channel.size() - headerSize) / blockSize;
+		for (long start = 0; start < blocks; start += chunkBlocks) {
+			chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, headerSize + start * blockSize, Math.min(chunkBlocks, blocks - start) * blockSize));
+		}
+
+		// A file that was never closed ends at its first empty block
+		int count = 0;
+		long rows = 0;
+		while (count < blocks && getRows(count) > 0) {
+			rows += getRows(count);
+			count++;
+		}
+		blockCount = count;
+		rowCount = rows;
+	}
+
+	public String[] getColumns() {
+		return columns;
+	}
+
+	/** The index of the named column, or -1 if there is none. */
+	public int getColumn(final String name) {
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i].equals(name)) return i;
+		}
+		return -1;
+	}
+
+	public int getBlockCount() {
+		return blockCount;
+	}
+
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	public int getRows(final int block) {
+		return chunk(block).getInt(offset(block));
+	}
+
+	/** The smallest value of the column in the block, ignoring NaN; positive infinity if every value is NaN. */
+	public double getMin(final int block, final int column) {
+		return chunk(block).getDouble(offset(block) + SessionRecorder.BLOCK_HEADER_SIZE + column * 16);
+	}
+
+	public double getMax(final int block, final int column) {
+		return chunk(block).getDouble(offset(block) + SessionRecorder.BLOCK_HEADER_SIZE + column * 16 + 8);
+	}
+
+	/** The column's values in the block, one per row, read straight from the mapped file. */
+	public DoubleBuffer getValues(final int block, final int column) {
+		final ByteBuffer buffer = chunk(block).duplicate();
+		buffer.position(offset(block) + SessionRecorder.BLOCK_HEADER_SIZE + columns.length * 16 + column * blockRows * 8);
+		final DoubleBuffer values = buffer.slice().asDoubleBuffer();
+		values.limit(getRows(block));
+		return values;
+	}
+
+	private MappedByteBuffer chunk(final int block) {
+		return chunks.get(block / chunkBlocks);
+	}
+
+	private int offset(final int block) {
+		return (int) (block % chunkBlocks * blockSize);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
@@ -0,0 +1,206 @@
+package com.qualcomm.simulator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records a session to a columnar file, one column of doubles per signal, for {@link SessionReader} to query later.
+ *
+ * The file is a header naming the columns followed by fixed-size blocks of {@code blockRows} rows. Each block starts
+ * with its row count and a zone map, the minimum and maximum of every column in the block, so queries can skip
+ * blocks that can't match; then each column's values follow contiguously. A block of zero rows, which is what an
+ * unwritten mapping reads as, marks the end of a file that was not closed.
+ *
+ * {@link #record} only copies the row into a single-producer single-consumer ring and returns. A writer thread
+ * transposes rows into the current block and appends finished blocks through a memory-mapped region of the file, so
+ * the simulation thread never touches the disk. If the writer falls a whole ring behind, new rows are dropped and
+ * counted.
+ */
+public class SessionRecorder implements Closeable {
+
+	static final long MAGIC = 0x53494D5345535331L; // "SIMSESS1"
+	static final int FIXED_HEADER_SIZE = 24, BLOCK_HEADER_SIZE = 8;
+	public static final int DEFAULT_BLOCK_ROWS = 1024, DEFAULT_QUEUE_ROWS = 4096;
+	private static final long REGION_SIZE = 64L << 20;
+
+	private final int columns, blockRows, queueRows;
+	private final FileChannel channel;
+	private final long headerSize, blockSize;
+	private final int regionBlocks;
+
+	private final double[] queue;
+	private volatile long head = 0, tail = 0;
+	private volatile long dropped = 0;
+	private volatile boolean closed = false;
+	private final Thread writer;
+
+	// Writer state
+	private final double[] block, min, max;
+	private int rows = 0;
+	private long blocks = 0;
+	private volatile long written = 0;
+	private MappedByteBuffer region;
+	private long regionIndex = -1;
+	private IOException failure;
+
+	public SessionRecorder(final Path file, final String[] columns) throws IOException {
+		this(file, columns, DEFAULT_BLOCK_ROWS, DEFAULT_QUEUE_ROWS);
+	}
+
+	public SessionRecorder(final Path file, final String[] columns, final int blockRows, final int queueRows) throws IOException {
+		if (columns.length == 0) throw new IllegalArgumentException("a session needs at least one column");
+		if (blockRows < 1 || queueRows < 1) throw new IllegalArgumentException("blockRows and queueRows must be positive");
+
+		this.columns = columns.length;
+		this.blockRows = blockRows;
+		this.queueRows = queueRows;
+
+		final byte[][] names = new byte[columns.length][];
+		int namesSize = 0;
+		for (int i = 0; i < columns.length; i++) {
+			names[i] = columns[i].getBytes(StandardCharsets.UTF_8);
+			namesSize += 2 + names[i].length;
+		}
+		// Blocks start on an 8 byte boundary so the column data can be read as doubles in place
+		headerSize = (FIXED_HEADER_SIZE + namesSize + 7) & ~7;
+		blockSize = BLOCK_HEADER_SIZE + 16L * this.columns + 8L * this.columns * blockRows;
+		regionBlocks = (int) Math.max(1, REGION_SIZE / blockSize);
+
+		final ByteBuffer header = ByteBuffer.allocate((int) headerSize);
+		header.putLong(MAGIC).putInt((int) headerSize).putInt(this.columns).putInt(blockRows).putInt(0);
+		for (final byte[] name : names) {
+			header.putShort((short) name.length).put(name);
+		}
+		header.clear();
+
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		channel.write(header, 0);
+
+		queue = new double[queueRows * this.columns];
+		block = new double[blockRows * this.columns];
+		min = new double[this.columns];
+		max = new double[this.columns];
+		resetZoneMap();
+
+		writer = new Thread(this::run, "SessionRecorder");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	public int getColumnCount() {
+		return columns;
+	}
+
+	/** Queues one row for writing. Returns false if the row was dropped because the writer is a whole ring behind. */
+	public boolean record(final double[] row) {
+		if (row.length != columns) throw new IllegalArgumentException(String.format("row has %d columns, recorder has %d", row.length, columns));
+
+		final long h = head;
+		if (h - tail >= queueRows || closed) {
+			dropped++;
+			return false;
+		}
+
+		System.arraycopy(row, 0, queue, (int) (h % queueRows) * columns, columns);
+		head = h + 1;
+		return true;
+	}
+
+	public long getDroppedCount() {
+		return dropped;
+	}
+
+	/** Rows in the blocks written to the file so far. */
+	public long getRowCount() {
+		return written;
+	}
+
+	private void run() {
+		try {
+			while (true) {
+				final long t = tail;
+				if (t == head) {
+					if (closed) break;
+					LockSupport.parkNanos(1000000L);
+					continue;
+				}
+
+				final int offset = (int) (t % queueRows) * columns;
+				for (int column = 0; column < columns; column++) {
+					final double value = queue[offset + column];
+					block[column * blockRows + rows] = value;
+					// NaN never compares, so it stays out of the zone map
+					if (value < min[column]) min[column] = value;
+					if (value > max[column]) max[column] = value;
+				}
+				tail = t + 1;
+
+				if (++rows == blockRows) writeBlock();
+			}
+
+			if (rows > 0) writeBlock();
+		} catch (final IOException e) {
+			failure = e;
+		}
+	}
+
+	private void writeBlock() throws IOException {
+		final long index = blocks / regionBlocks;
+		if (index != regionIndex) {
+			if (region != null) region.force();
+			region = channel.map(FileChannel.MapMode.READ_WRITE, headerSize + index * regionBlocks * blockSize, regionBlocks * blockSize);
+			regionIndex = index;
+		}
+
+		final int start = (int) (blocks % regionBlocks * blockSize);
+		region.putInt(start, rows);
+		region.putInt(start + 4, 0);
+		for (int column = 0; column < columns; column++) {
+			region.putDouble(start + BLOCK_HEADER_SIZE + column * 16, min[column]);
+			region.putDouble(start + BLOCK_HEADER_SIZE + column * 16 + 8, max[column]);
+		}
+
+		final ByteBuffer data = region.duplicate();
+		data.position(start + BLOCK_HEADER_SIZE + columns * 16);
+		data.asDoubleBuffer().put(block);
+
+		blocks++;
+		written += rows;
+		rows = 0;
+		resetZoneMap();
+	}
+
+	private void resetZoneMap() {
+		for (int column = 0; column < columns; column++) {
+			min[column] = Double.POSITIVE_INFINITY;
+			max[column] = Double.NEGATIVE_INFINITY;
+		}
+	}
+
+	/** Writes every queued row, trims the file to the blocks written and closes it. */
+	@Override
+	public void close() throws IOException {
+		if (closed) return;
+
+		closed = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (region != null) region.force();
+		channel.truncate(headerSize + blocks * blockSize);
+		channel.close();
+		if (failure != null) throw failure;
+	}
+
+}
@@ -0,0 +1,383 @@
+package com.qualcomm.simulator;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Container;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.swing.ImageIcon;
+import javax.swing.JLabel;
+
+import com.qualcomm.robotcore.hardware.CameraFrame;
+import com.qualcomm.robotcore.hardware.CameraPipeline;
+import com.qualcomm.robotcore.hardware.Webcam;
+
+/**
+ * A webcam that renders the field from the robot's pose on the CPU. Each column is one {@link Field#raycast} for the
+ * nearest wall; rows below the wall sample the floor raster, rows above it are left dark. {@link GameElements} are
+ * drawn over that as shaded balls resting on the floor, farthest first and hidden behind nearer walls. The camera runs
+ * on its own thread at a fixed frame rate and only reads the pose the simulation publishes, so it never holds up a
+ * tick.
+ *
+ * Frames come from a small pool. A rendered frame goes through the pipeline and then becomes the latest frame, which
+ * viewers can borrow with {@link #acquireLatestFrame()}; whatever it replaces goes back to the pool. When every frame
+ * is borrowed the next frame is skipped rather than allocated.
+ */
+public class SimCamera implements RobotComponent, Webcam {
+
+	public static final int DEFAULT_WIDTH = 160, DEFAULT_HEIGHT = 120, DEFAULT_FPS = 30;
+	public static final float DEFAULT_FIELD_OF_VIEW = 60f;
+
+	private static final int POOL_SIZE = 3;
+	private static final int SKY_COLOR = 0xFF202428;
+	private static final float CAMERA_HEIGHT = 8f, WALL_HEIGHT = 12f, MAX_RANGE = 240f;
+
+	private final String name;
+	private final float x, y, rotation;
+	private final Simulation simulation;
+	private final int width, height, fps;
+
+	// Per column: the ray's angle from the optical axis; per row below the horizon: the perpendicular floor distance
+	private final float[] columnCos, columnSin, rowDistance;
+	private final float focalLength, horizon;
+	// Per column: the perpendicular distance to the wall drawn there; per visible element, nearest last
+	private final float[] wallDepth;
+	private int[] elementOrder = new int[0];
+	private float[] elementDepth = new float[0];
+
+	private final ArrayBlockingQueue<CameraFrame> pool = new ArrayBlockingQueue<CameraFrame>(POOL_SIZE);
+	private final AtomicReference<CameraFrame> latest = new AtomicReference<CameraFrame>();
+	private final float[] pose = new float[3];
+
+	private volatile CameraPipeline pipeline;
+	private volatile boolean streaming = false;
+	private volatile Thread thread;
+	private volatile float measuredFps = 0f;
+	private volatile long frameNumber = 0;
+	private volatile long skipped = 0;
+
+	private final BufferedImage image, preview;
+
+	public SimCamera(final float x, final float y, final float rotation, final String name, final Simulation simulation) {
+		this(x, y, rotation, name, simulation, DEFAULT_WIDTH, DEFAULT_HEIGHT, DEFAULT_FPS, DEFAULT_FIELD_OF_VIEW);
+	}
+
+	public SimCamera(final float x, final float y, final float rotation, final String name, final Simulation simulation, final int width, final int height, final int fps, final float fieldOfView) {
+		this.name = name;
+		this.simulation = simulation;
+
+		simulation.getOpMode().hardwareMap.webcam.put(name, this);
+		this.x = x;
+		this.y = y;
+		this.rotation = rotation;
+		this.width = width;
+		this.height = height;
+		this.fps = fps;
+
+		for (int i = 0; i < POOL_SIZE; i++) {
+			pool.add(new CameraFrame(width, height));
+		}
+
+		focalLength = (float) (width / 2 / Math.tan(Math.toRadians(fieldOfView / 2)));
+		horizon = height / 2f;
+		columnCos = new float[width];
+		columnSin = new float[width];
+		for (int column = 0; column < width; column++) {
+			final double angle = Math.atan2(column + 0.5 - width / 2d, focalLength);
+			columnCos[column] = (float) Math.cos(angle);
+			columnSin[column] = (float) Math.sin(angle);
+		}
+		wallDepth = new float[width];
+		rowDistance = new float[height];
+		for (int row = 0; row < height; row++) {
+			final float below = row + 0.5f - horizon;
+			rowDistance[row] = below > 0 ? CAMERA_HEIGHT * focalLength / below : Float.POSITIVE_INFINITY;
+		}
+
+		image = new BufferedImage(IMAGE_SCALE, IMAGE_SCALE, BufferedImage.TYPE_INT_ARGB_PRE);
+		final Graphics2D g = image.createGraphics();
+		g.setColor(Color.BLACK);
+		g.fillRect(0, IMAGE_SCALE / 3, IMAGE_SCALE, IMAGE_SCALE * 2 / 3);
+		g.setColor(Color.CYAN);
+		g.fillOval(IMAGE_SCALE / 4, 0, IMAGE_SCALE / 2, IMAGE_SCALE / 2);
+
+		preview = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	@Override
+	public Container getInfoBox() {
+		final Container box = RobotComponent.createInfoBox(this, streaming ? String.format("Streaming: %.1f fps, %d skipped", measuredFps, skipped) : "Not streaming");
+
+		final CameraFrame frame = acquireLatestFrame();
+		if (frame != null) {
+			preview.setRGB(0, 0, width, height, frame.pixels, 0, width);
+			releaseFrame(frame);
+			box.add(new JLabel(new ImageIcon(preview)), BorderLayout.SOUTH);
+		}
+
+		return box;
+	}
+
+	@Override
+	public BufferedImage getImage() {
+		return image;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	// A new frame changes the inspector's preview even while the robot stands still
+	@Override
+	public long getVersion() {
+		return frameNumber;
+	}
+
+	@Override
+	public float getX() {
+		return x;
+	}
+
+	@Override
+	public float getY() {
+		return y;
+	}
+
+	@Override
+	public float getRotation() {
+		return rotation;
+	}
+
+	@Override
+	public void setPipeline(final CameraPipeline pipeline) {
+		this.pipeline = pipeline;
+	}
+
+	@Override
+	public synchronized void startStreaming() {
+		if (streaming) return;
+
+		streaming = true;
+		thread = new Thread(this::run, "SimCamera-" + name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Returns once the render thread has finished, so a following start never renders alongside it. The wait happens
+	 * outside the lock, so a pipeline that starts or stops the camera meanwhile can't hold it up.
+	 */
+	@Override
+	public void stopStreaming() {
+		final Thread thread;
+		synchronized (this) {
+			streaming = false;
+			thread = this.thread;
+			this.thread = null;
+		}
+		if (thread == null) return;
+
+		LockSupport.unpark(thread);
+		// A pipeline may stop the camera from the render thread itself, which then just leaves its loop
+		if (thread == Thread.currentThread()) return;
+
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (final InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	@Override
+	public int getFrameWidth() {
+		return width;
+	}
+
+	@Override
+	public int getFrameHeight() {
+		return height;
+	}
+
+	@Override
+	public float getFps() {
+		return measuredFps;
+	}
+
+	/** Takes the newest rendered frame, or null if there is none yet. Hand it back with {@link #releaseFrame}. */
+	public CameraFrame acquireLatestFrame() {
+		return latest.getAndSet(null);
+	}
+
+	public void releaseFrame(final CameraFrame frame) {
+		// Put it back as the latest unless a newer frame arrived meanwhile
+		if (!latest.compareAndSet(null, frame)) pool.offer(frame);
+	}
+
+	private void run() {
+		final long period = 1000000000L / fps;
+		long next = System.nanoTime(), second = next;
+		int framesThisSecond = 0;
+		boolean initialized = false;
+
+		// Each render thread runs only while it is the camera's current one
+		while (thread == Thread.currentThread()) {
+			final CameraFrame frame = pool.poll();
+			if (frame == null) {
+				skipped++;
+			} else {
+				render(frame);
+				frame.timestamp = System.nanoTime();
+				frame.frameNumber = frameNumber++;
+
+				final CameraPipeline pipeline = this.pipeline;
+				if (pipeline != null) {
+					if (!initialized) {
+						pipeline.init(frame);
+						initialized = true;
+					}
+					pipeline.processFrame(frame);
+				}
+
+				final CameraFrame replaced = latest.getAndSet(frame);
+				if (replaced != null) pool.offer(replaced);
+				framesThisSecond++;
+			}
+
+			final long now = System.nanoTime();
+			if (now - second >= 1000000000L) {
+				measuredFps = framesThisSecond * 1e9f / (now - second);
+				framesThisSecond = 0;
+				second = now;
+			}
+
+			// Skip ahead rather than bursting if rendering fell behind
+			next += period;
+			if (next < now) next = now;
+			LockSupport.parkNanos(next - now);
+		}
+	}
+
+	void render(final CameraFrame frame) {
+		simulation.readPose(pose);
+		final Field field = simulation.getField();
+
+		final double robotRotation = Math.toRadians(pose[2]);
+		final float sin = (float) Math.sin(robotRotation), cos = (float) Math.cos(robotRotation);
+		final float cameraX = pose[0] + x * sin - y * cos, cameraY = pose[1] + x * cos + y * sin;
+		final double heading = Math.toRadians(pose[2] + rotation);
+		final float headingCos = (float) Math.cos(heading), headingSin = (float) Math.sin(heading);
+
+		final int[] pixels = frame.pixels;
+		for (int column = 0; column < width; column++) {
+			// Rotate the heading clockwise by the column's angle; field y points down
+			final float dx = headingCos * columnCos[column] + headingSin * columnSin[column];
+			final float dy = -(headingSin * columnCos[column] - headingCos * columnSin[column]);
+
+			final int segment = field.raycastSegment(cameraX, cameraY, dx, dy, MAX_RANGE);
+			int wallTop = height, wallBottom = height, wallColor = SKY_COLOR;
+			wallDepth[column] = Float.POSITIVE_INFINITY;
+			if (segment >= 0) {
+				final float distance = field.getSegmentDistance(segment, cameraX, cameraY, dx, dy);
+				final float perpendicular = Math.max(0.01f, distance * columnCos[column]);
+				wallDepth[column] = perpendicular;
+				wallTop = (int) Math.max(0, horizon - (WALL_HEIGHT - CAMERA_HEIGHT) * focalLength / perpendicular);
+				wallBottom = (int) Math.min(height, horizon + CAMERA_HEIGHT * focalLength / perpendicular);
+				wallColor = shade(field.getSegmentColor(segment), distance);
+			}
+
+			for (int row = 0, index = column; row < height; row++, index += width) {
+				if (row < wallTop) {
+					pixels[index] = SKY_COLOR;
+				} else if (row < wallBottom) {
+					pixels[index] = wallColor;
+				} else if (rowDistance[row] != Float.POSITIVE_INFINITY) {
+					final float distance = rowDistance[row] / columnCos[column];
+					pixels[index] = shade(field.getFloorColor(cameraX + dx * distance, cameraY + dy * distance), distance);
+				} else {
+					pixels[index] = SKY_COLOR;
+				}
+			}
+		}
+
+		renderElements(pixels, cameraX, cameraY, headingCos, headingSin);
+	}
+
+	private void renderElements(final int[] pixels, final float cameraX, final float cameraY, final float headingCos, final float headingSin) {
+		final GameElements elements = simulation.getElements();
+		final int count = elements.getCount();
+		if (elementOrder.length < count) {
+			elementOrder = new int[count];
+			elementDepth = new float[count];
+		}
+
+		// Straight ahead and to the right, in field coordinates with y pointing down
+		final float forwardX = headingCos, forwardY = -headingSin, rightX = headingSin, rightY = headingCos;
+
+		// Insertion sort by depth, farthest first, so nearer elements are drawn over farther ones
+		int visible = 0;
+		for (int i = 0; i < count; i++) {
+			final float depth = (elements.getX(i) - cameraX) * forwardX + (elements.getY(i) - cameraY) * forwardY;
+			if (depth < elements.getRadius(i) || depth > MAX_RANGE) continue;
+
+			int j = visible++;
+			while (j > 0 && elementDepth[j - 1] < depth) {
+				elementOrder[j] = elementOrder[j - 1];
+				elementDepth[j] = elementDepth[j - 1];
+				j--;
+			}
+			elementOrder[j] = i;
+			elementDepth[j] = depth;
+		}
+
+		for (int k = 0; k < visible; k++) {
+			final int i = elementOrder[k];
+			final float depth = elementDepth[k], radius = elements.getRadius(i);
+			final float lateral = (elements.getX(i) - cameraX) * rightX + (elements.getY(i) - cameraY) * rightY;
+			final float centreColumn = width / 2f + lateral * focalLength / depth;
+			final float centreRow = horizon + (CAMERA_HEIGHT - radius) * focalLength / depth;
+			final float pixelRadius = radius * focalLength / depth;
+			final int color = shade(elements.getColor(i), depth);
+
+			final int first = Math.max(0, (int) (centreColumn - pixelRadius)), last = Math.min(width - 1, (int) (centreColumn + pixelRadius));
+			for (int column = first; column <= last; column++) {
+				if (wallDepth[column] <= depth) continue;
+
+				final float offset = column + 0.5f - centreColumn, squared = pixelRadius * pixelRadius - offset * offset;
+				if (squared <= 0) continue;
+
+				final float half = (float) Math.sqrt(squared);
+				final int top = Math.max(0, (int) (centreRow - half + 0.5f)), bottom = Math.min(height, (int) (centreRow + half + 0.5f));
+				for (int row = top, index = top * width + column; row < bottom; row++, index += width) {
+					pixels[index] = color;
+				}
+			}
+		}
+	}
+
+	// Darkens distant surfaces a little so depth is readable
+	private static int shade(final int color, final float distance) {
+		final int factor = (int) (256 / (1 + distance / 240f));
+		final int r = (color >> 16 & 0xFF) * factor >> 8, g = (color >> 8 & 0xFF) * factor >> 8, b = (color & 0xFF) * factor >> 8;
+		return 0xFF000000 | r << 16 | g << 8 | b;
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.qualcomm.simulator;
+
+import java.awt.Color;
+import java.awt.Container;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+
+import com.qualcomm.robotcore.hardware.DistanceSensor;
+
+public class SimDistanceSensor implements RobotComponent, DistanceSensor {
+
+	public static final float DEFAULT_MAX_RANGE = 78.7f; // 2 m, like the REV distance sensor
+
+	private final String name;
+	private final float x, y, rotation;
+	private final Simulation simulation;
+	private final float maxRange;
+
+	private final BufferedImage image;
+	private static final float size = IMAGE_SCALE;
+
+	public SimDistanceSensor(final float x, final float y, final float rotation, final String name, final Simulation simulation) {
+		this(x, y, rotation, name, simulation, DEFAULT_MAX_RANGE);
+	}
+
+	public SimDistanceSensor(final float x, final float y, final float rotation, final String name, final Simulation simulation, final float maxRange) {
+		this.name = name;
+		this.simulation = simulation;
+
+		simulation.getOpMode().hardwareMap.distanceSensor.put(name, this);
+		this.x = x;
+		this.y = y;
+		this.rotation = rotation;
+		this.maxRange = maxRange;
+
+		image = new BufferedImage(Math.round(size), Math.round(size), BufferedImage.TYPE_INT_ARGB_PRE);
+		final Graphics2D g = image.createGraphics();
+		g.setColor(new Color(0, 110, 170));
+		g.fillRect(0, Math.round(size / 2), Math.round(size), Math.round(size / 2));
+		g.setColor(Color.RED);
+		g.drawLine(Math.round(size / 2), 0, Math.round(size / 2), Math.round(size / 2));
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	@Override
+	public Container getInfoBox() {
+		final double distance = getDistance(DistanceUnit.INCH);
+		return RobotComponent.createInfoBox(this, distance == DistanceUnit.infinity ? "Distance: out of range" : String.format("Distance: %.1f in", distance));
+	}
+
+	@Override
+	public BufferedImage getImage() {
+		return image;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public float getX() {
+		return x;
+	}
+
+	@Override
+	public float getY() {
+		return y;
+	}
+
+	@Override
+	public float getRotation() {
+		return rotation;
+	}
+
+	@Override
+	public double getDistance(final DistanceUnit unit) {
+		final double heading = Math.toRadians(simulation.getRobotRotation() + rotation);
+		final float distance = simulation.getField().raycast(simulation.toFieldX(x, y), simulation.toFieldY(x, y), (float) Math.cos(heading), (float) -Math.sin(heading), maxRange);
+		return distance == Float.POSITIVE_INFINITY ? DistanceUnit.infinity : unit.fromInches(distance);
+	}
+
+}
@@ -13,19 +13,32 @@ public class SimMotor implements RobotComponent, DcMotor {
 	private final String name;
 	private final float x, y, rotation;
 
-	private int currentPositon;
+	private final MotorSpec spec;
+	private ElectricalModel electrics;
+	private int index = -1;
+	private int encoderZero;
 	private int targetPosition;
 	private int maxSpeed;
 	private RunMode runMode;
 	private ZeroPowerBehavior zeroPowerBehavior;
 	private double power = 0f;
 	private Direction direction;
+	private float gain = 1f;
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final RunMode[] RUN_MODES = RunMode.values();
+	private static final ZeroPowerBehavior[] ZERO_POWER_BEHAVIORS = ZeroPowerBehavior.values();
 
 	private final BufferedImage image;
 	private static final float width = 3 * IMAGE_SCALE, height = IMAGE_SCALE;
 
 	public SimMotor(final float x, final float y, final float rotation, final String name, final HardwareMap map) {
+		this(x, y, rotation, name, map, MotorSpec.GOBILDA_312);
+	}
+
+	public SimMotor(final float x, final float y, final float rotation, final String name, final HardwareMap map, final MotorSpec spec) {
 		this.name = name;
+		this.spec = spec;
 
 		map.dcMotor.put(name, this);
 		this.x = x;
@@ -45,7 +58,7 @@ public class SimMotor implements RobotComponent, DcMotor {
 
 	@Override
 	public Container getInfoBox() {
-		return RobotComponent.createInfoBox(this, String.format("Power: %.2f", power));
+		return RobotComponent.createInfoBox(this, String.format("Power: %.2f", power), String.format("Current: %.2f A", getCurrent()), String.format("Encoder: %d", getCurrentPosition()));
 	}
 
 	@Override
@@ -53,6 +66,11 @@ public class SimMotor implements RobotComponent, DcMotor {
 		return image;
 	}
 
+	@Override
+	public long getVersion() {
+		return Double.doubleToLongBits(power) * 31 + getCurrentPosition();
+	}
+
 	@Override
 	public String getName() {
 		return name;
@@ -80,7 +98,12 @@ public class SimMotor implements RobotComponent, DcMotor {
 
 	@Override
 	public int getCurrentPosition() {
-		return currentPositon;
+		// Counts run the other way when the motor is reversed, like the SDK
+		return (getRawPosition() - encoderZero) * (direction == Direction.FORWARD ? 1 : -1);
+	}
+
+	private int getRawPosition() {
+		return electrics == null ? 0 : (int) Math.round(electrics.getAngle(index) * spec.getTicksPerRevolution() / (2 * Math.PI));
 	}
 
 	@Override
@@ -116,6 +139,10 @@ public class SimMotor implements RobotComponent, DcMotor {
 	@Override
 	public void setMode(final RunMode mode) {
 		runMode = mode;
+		if (mode == RunMode.STOP_AND_RESET_ENCODER) {
+			power = 0;
+			encoderZero = getRawPosition();
+		}
 	}
 
 	@Override
@@ -148,4 +175,58 @@ public class SimMotor implements RobotComponent, DcMotor {
 		this.direction = direction;
 	}
 
+	void attach(final ElectricalModel electrics, final int index) {
+		this.electrics = electrics;
+		this.index = index;
+	}
+
+	public MotorSpec getSpec() {
+		return spec;
+	}
+
+	/** Output shaft speed in radians per second. */
+	public double getVelocity() {
+		return electrics == null ? 0 : electrics.getVelocity(index);
+	}
+
+	/** Winding current in amps. */
+	public double getCurrent() {
+		return electrics == null ? 0 : electrics.getCurrent(index);
+	}
+
+	/** How strongly this motor responds to power compared to a nominal one, for simulating unit-to-unit variance. */
+	public float getGain() {
+		return gain;
+	}
+
+	public void setGain(final float gain) {
+		this.gain = gain;
+	}
+
+	void writeState(final double[] data, final int offset) {
+		data[offset] = power;
+		data[offset + 1] = direction == null ? -1 : direction.ordinal();
+		data[offset + 2] = encoderZero;
+		data[offset + 3] = targetPosition;
+		data[offset + 4] = maxSpeed;
+		data[offset + 5] = runMode == null ? -1 : runMode.ordinal();
+		data[offset + 6] = zeroPowerBehavior == null ? -1 : zeroPowerBehavior.ordinal();
+		if (electrics != null) {
+			data[offset + 7] = electrics.getVelocity(index);
+			data[offset + 8] = electrics.getAngle(index);
+			data[offset + 9] = electrics.getCurrent(index);
+		}
+	}
+
+	void readState(final double[] data, final int offset) {
+		power = data[offset];
+		direction = data[offset + 1] < 0 ? null : DIRECTIONS[(int) data[offset + 1]];
+		encoderZero = (int) data[offset + 2];
+		targetPosition = (int) data[offset + 3];
+		maxSpeed = (int) data[offset + 4];
+		runMode = data[offset + 5] < 0 ? null : RUN_MODES[(int) data[offset + 5]];
+		zeroPowerBehavior = data[offset + 6] < 0 ? null : ZERO_POWER_BEHAVIORS[(int) data[offset + 6]];
+		if (electrics != null) electrics.setState(index, data[offset + 7], data[offset + 8], data[offset + 9]);
+	}
+
 }
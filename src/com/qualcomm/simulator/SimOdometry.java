@@ -0,0 +1,238 @@
+package com.qualcomm.simulator;
+
+import com.qualcomm.robotcore.hardware.DeadWheelOdometry;
+import com.qualcomm.robotcore.hardware.OdometryReading;
+
+/**
+ * Dead-wheel odometry sampled from inside the physics substeps. Samples fall at exact multiples of the sample period,
+ * between substeps if need be, with the pose interpolated to that instant; so a 1 kHz pod set gives 1 kHz readings
+ * even when physics runs slower. Each pod accumulates its travel as fractional counts and reports the floor, like a
+ * quadrature encoder.
+ *
+ * Samples go into a single-producer single-consumer ring. The simulation writes a slot and then publishes it by
+ * advancing the volatile head; the op mode reads a slot and frees it by advancing the volatile tail. Neither side
+ * locks or allocates, and a full ring drops the new sample rather than overwriting one the reader may be copying.
+ */
+public class SimOdometry implements DeadWheelOdometry {
+
+	public static final double MAX_SAMPLE_RATE = 1000;
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private final OdometryPod[] pods;
+	private final double sampleRate, samplePeriod;
+
+	private final int capacity;
+	private final double[] times;
+	private final int[] counts;
+	private final float[] truth;
+	private volatile long head = 0, tail = 0;
+	private volatile long dropped = 0;
+
+	// Producer state, only touched by the simulation thread
+	private final double[] travel;
+	private double time = 0, nextSample = 0;
+	private float stepX, stepY, stepRotation;
+	private float sampleX, sampleY, sampleRotation;
+	private float slipNoise = 0f;
+	private SplitMix64 noiseRandom;
+
+	public SimOdometry(final double sampleRate, final OdometryPod... pods) {
+		this(sampleRate, DEFAULT_CAPACITY, pods);
+	}
+
+	public SimOdometry(final double sampleRate, final int capacity, final OdometryPod... pods) {
+		if (sampleRate <= 0 || sampleRate > MAX_SAMPLE_RATE) throw new IllegalArgumentException(String.format("sample rate must be between 0 and %.0f Hz: %f", MAX_SAMPLE_RATE, sampleRate));
+		if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1");
+		if (pods.length == 0) throw new IllegalArgumentException("odometry needs at least one pod");
+
+		this.pods = pods;
+		this.sampleRate = sampleRate;
+		this.samplePeriod = 1 / sampleRate;
+		this.capacity = capacity;
+
+		times = new double[capacity];
+		counts = new int[capacity * pods.length];
+		truth = new float[capacity * 3];
+		travel = new double[pods.length];
+	}
+
+	/** Two parallel pods {@code trackWidth} apart and one perpendicular pod {@code offset} inches behind the centre. */
+	public static SimOdometry threeWheel(final String name, final float trackWidth, final float offset, final double sampleRate) {
+		return new SimOdometry(sampleRate,
+				new OdometryPod(-trackWidth / 2, 0f, 0f, name + "left"),
+				new OdometryPod(trackWidth / 2, 0f, 0f, name + "right"),
+				new OdometryPod(0f, offset, 90f, name + "perpendicular"));
+	}
+
+	/**
+	 * One parallel pod {@code parallelX} inches right of the centre and one perpendicular pod {@code offset} inches
+	 * behind it. Heading comes from elsewhere, usually an IMU; the readings' true heading stands in for one.
+	 */
+	public static SimOdometry twoWheel(final String name, final float parallelX, final float offset, final double sampleRate) {
+		return new SimOdometry(sampleRate,
+				new OdometryPod(parallelX, 0f, 0f, name + "parallel"),
+				new OdometryPod(0f, offset, 90f, name + "perpendicular"));
+	}
+
+	public OdometryPod[] getPods() {
+		return pods;
+	}
+
+	@Override
+	public int getPodCount() {
+		return pods.length;
+	}
+
+	@Override
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+	@Override
+	public long getDroppedCount() {
+		return dropped;
+	}
+
+	/**
+	 * Scales each sample's travel by a normally distributed error with standard deviation {@code noise}, drawn from
+	 * {@code seed}. Zero turns the noise off.
+	 */
+	public void setSlipNoise(final float noise, final long seed) {
+		if (noise < 0f) throw new IllegalArgumentException("noise must not be negative");
+
+		slipNoise = noise;
+		noiseRandom = new SplitMix64(seed);
+	}
+
+	public float getSlipNoise() {
+		return slipNoise;
+	}
+
+	@Override
+	public boolean poll(final OdometryReading reading) {
+		final long t = tail;
+		if (t == head) return false;
+		if (reading.counts.length < pods.length) throw new IllegalArgumentException(String.format("reading holds %d pods, odometry has %d", reading.counts.length, pods.length));
+
+		final int slot = (int) (t % capacity);
+		reading.time = times[slot];
+		System.arraycopy(counts, slot * pods.length, reading.counts, 0, pods.length);
+		reading.trueX = truth[slot * 3];
+		reading.trueY = truth[slot * 3 + 1];
+		reading.trueHeading = truth[slot * 3 + 2];
+		tail = t + 1;
+		return true;
+	}
+
+	/** Moves the reference pose without counting any travel, for teleports and restores. */
+	void reset(final float x, final float y, final float rotation) {
+		stepX = sampleX = x;
+		stepY = sampleY = y;
+		stepRotation = sampleRotation = rotation;
+	}
+
+	/** Slots in a {@link WorldSnapshot}: the sample clock, the pose at the last sample, the noise and each pod's travel. */
+	int getStateSize() {
+		return WorldSnapshot.ODOMETRY_SIZE + pods.length;
+	}
+
+	void writeState(final double[] data, final int offset) {
+		data[offset] = time;
+		data[offset + 1] = nextSample;
+		data[offset + 2] = sampleX;
+		data[offset + 3] = sampleY;
+		data[offset + 4] = sampleRotation;
+		WorldSnapshot.writeLong(noiseRandom == null ? 0 : noiseRandom.getState(), data, offset + 5);
+		for (int i = 0; i < pods.length; i++) {
+			data[offset + WorldSnapshot.ODOMETRY_SIZE + i] = travel[i];
+		}
+	}
+
+	/**
+	 * Call after {@link #reset} with the restored pose. Readings not yet polled belong to the run being left, so they
+	 * are dropped.
+	 */
+	void readState(final double[] data, final int offset) {
+		time = data[offset];
+		nextSample = data[offset + 1];
+		sampleX = (float) data[offset + 2];
+		sampleY = (float) data[offset + 3];
+		sampleRotation = (float) data[offset + 4];
+		if (noiseRandom != null) noiseRandom.setState(WorldSnapshot.readLong(data, offset + 5));
+		for (int i = 0; i < pods.length; i++) {
+			travel[i] = data[offset + WorldSnapshot.ODOMETRY_SIZE + i];
+			pods[i].count = (int) Math.floor(travel[i]);
+		}
+		tail = head;
+	}
+
+	/** Called after each physics substep with the pose at the end of it. */
+	void update(final double timeStep, final float x, final float y, final float rotation) {
+		final double start = time;
+		time += timeStep;
+
+		final float turn = turn(stepRotation, rotation);
+		while (nextSample <= time) {
+			final float alpha = (float) ((nextSample - start) / timeStep);
+			sample(nextSample, stepX + (x - stepX) * alpha, stepY + (y - stepY) * alpha, stepRotation + turn * alpha);
+			nextSample += samplePeriod;
+		}
+
+		stepX = x;
+		stepY = y;
+		stepRotation = rotation;
+	}
+
+	private void sample(final double sampleTime, final float x, final float y, final float rotation) {
+		final double oldRotation = Math.toRadians(sampleRotation), newRotation = Math.toRadians(rotation);
+		final double oldSin = Math.sin(oldRotation), oldCos = Math.cos(oldRotation);
+		final double newSin = Math.sin(newRotation), newCos = Math.cos(newRotation);
+
+		for (int i = 0; i < pods.length; i++) {
+			final OdometryPod pod = pods[i];
+			final float podX = pod.getX(), podY = pod.getY();
+			final double dx = (x + podX * newSin - podY * newCos) - (sampleX + podX * oldSin - podY * oldCos);
+			final double dy = (y + podX * newCos + podY * newSin) - (sampleY + podX * oldCos + podY * oldSin);
+
+			// Project onto the direction the wheel rolls, halfway through the turn; field y points down
+			final double axis = Math.toRadians(sampleRotation + turn(sampleRotation, rotation) / 2 + pod.getRotation());
+			double inches = dx * Math.cos(axis) - dy * Math.sin(axis);
+			if (slipNoise > 0f) inches *= 1 + slipNoise * noiseRandom.nextGaussian();
+
+			travel[i] += inches * pod.getTicksPerInch();
+		}
+
+		sampleX = x;
+		sampleY = y;
+		sampleRotation = rotation;
+		// The inspector shows the latest counts even while the ring is full
+		for (int i = 0; i < pods.length; i++) {
+			pods[i].count = (int) Math.floor(travel[i]);
+		}
+
+		final long h = head;
+		if (h - tail >= capacity) {
+			dropped++;
+			return;
+		}
+
+		final int slot = (int) (h % capacity);
+		times[slot] = sampleTime;
+		for (int i = 0; i < pods.length; i++) {
+			counts[slot * pods.length + i] = pods[i].count;
+		}
+		truth[slot * 3] = x;
+		truth[slot * 3 + 1] = y;
+		truth[slot * 3 + 2] = ((rotation % 360f) + 360f) % 360f;
+		head = h + 1;
+	}
+
+	// Signed change from one heading to another, the short way round
+	private static float turn(final float from, final float to) {
+		float turn = (to - from) % 360f;
+		if (turn > 180f) turn -= 360f;
+		if (turn < -180f) turn += 360f;
+		return turn;
+	}
+
+}
@@ -1,61 +1,100 @@
 package com.qualcomm.simulator;
 
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
 import java.awt.Container;
-import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 
-import javax.swing.JButton;
-import javax.swing.JLabel;
-import javax.swing.JPanel;
-
 import com.qualcomm.robotcore.hardware.HardwareMap;
 import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.util.Range;
 
 public class SimServo implements RobotComponent, Servo {
 
+	// A typical hobby servo: 180 degrees of travel at 0.14 s per 60 degrees
+	public static final float DEFAULT_RANGE = 180f, DEFAULT_SPEED = 60f / 0.14f;
+
 	private String name;
 	private float x, y, rotation;
-	private float realPosition;
-	
-	private Direction direction;
-	private double targetPosition;
-	private double min, max;
-	
+	private float realPosition = 0.5f;
+	private float range, speed; // degrees of travel, degrees per second
+
+	private Direction direction = Direction.FORWARD;
+	// NaN until the first setPosition, like an unpowered servo; getPosition reports 0 meanwhile, as the SDK does
+	private double targetPosition = Double.NaN;
+	private double min = 0, max = 1;
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	private final BufferedImage image;
+	private float imagePosition = Float.NaN;
+	private static final int size = IMAGE_SCALE * 2;
+
 	public SimServo(float x, float y, float rotation, String name, HardwareMap map) {
+		this(x, y, rotation, name, map, DEFAULT_RANGE, DEFAULT_SPEED);
+	}
+
+	public SimServo(float x, float y, float rotation, String name, HardwareMap map, float range, float speed) {
 		this.name = name;
 		map.servo.put(name, this);
-		
+
 		this.x = x;
 		this.y = y;
-		this.rotation = rotation;	
+		this.rotation = rotation;
+		this.range = range;
+		this.speed = speed;
+
+		image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB_PRE);
 	}
-	
+
 	@Override
 	public String toString() { return name; }
-	
+
 	@Override
 	public Container getInfoBox() {
-		return RobotComponent.createInfoBox(this, String.format("Position: %.2f", this.realPosition));
+		return RobotComponent.createInfoBox(this, String.format("Position: %.2f", this.realPosition), String.format("Target: %.2f", getCommandedPosition()));
 	}
-	
+
 	@Override
 	public BufferedImage getImage() {
-		// TODO Return servo image
-		return null;
+		// Only redrawn when the horn has moved since the last frame
+		if (realPosition != imagePosition) {
+			imagePosition = realPosition;
+
+			final Graphics2D g = image.createGraphics();
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			g.setComposite(AlphaComposite.Clear);
+			g.fillRect(0, 0, size, size);
+			g.setComposite(AlphaComposite.SrcOver);
+			g.setColor(Color.BLACK);
+			g.fillRect(size / 4, size / 4, size / 2, size / 2);
+
+			// The horn sweeps the servo's range, centred on straight ahead
+			final double angle = Math.toRadians((imagePosition - 0.5) * range);
+			g.setColor(Color.WHITE);
+			g.setStroke(new BasicStroke(IMAGE_SCALE / 4f));
+			g.drawLine(size / 2, size / 2, (int) Math.round(size / 2 + Math.sin(angle) * size * 0.45), (int) Math.round(size / 2 - Math.cos(angle) * size * 0.45));
+			g.dispose();
+		}
+
+		return image;
 	}
 
 	@Override
 	public String getName() {
 		return this.name;
 	}
-	
+
 	@Override
 	public float getX() { return x; }
 	@Override
 	public float getY() { return y; }
 	@Override
 	public float getRotation() { return rotation; }
-	
+
 	@Override
 	public int getPortNumber() { return 0; } // TODO
 	@Override
@@ -63,10 +102,63 @@ public class SimServo implements RobotComponent, Servo {
 	@Override
 	public void setDirection(Direction direction) { this.direction = direction; }
 	@Override
-	public double getPosition() { return targetPosition; }
+	public double getPosition() { return Double.isNaN(targetPosition) ? 0 : targetPosition; }
 	@Override
-	public void setPosition(double position) { targetPosition = position; }
+	public void setPosition(double position) { targetPosition = Range.clip(position, 0.0, 1.0); }
+
 	@Override
-	public void scaleRange(double min, double max) { this.min = min; this.max = max; }
-	
+	public void scaleRange(double min, double max) {
+		Range.throwIfRangeIsInvalid(min, 0.0, 1.0);
+		Range.throwIfRangeIsInvalid(max, 0.0, 1.0);
+		if (min >= max) throw new IllegalArgumentException(String.format("min must be less than max: %f >= %f", min, max));
+
+		this.min = min;
+		this.max = max;
+	}
+
+	@Override
+	public long getVersion() {
+		return (long) Float.floatToIntBits(realPosition) << 32 ^ Double.doubleToLongBits(targetPosition);
+	}
+
+	/** Where the horn is actually going, after direction and range scaling, from 0 to 1 of the servo's travel. */
+	public double getCommandedPosition() {
+		if (Double.isNaN(targetPosition)) return Double.NaN;
+
+		final double position = direction == Direction.REVERSE ? 1 - targetPosition : targetPosition;
+		return min + position * (max - min);
+	}
+
+	/** Where the horn actually is, from 0 to 1 of the servo's travel. */
+	public float getRealPosition() { return realPosition; }
+
+	public float getSpeed() { return speed; }
+	public void setSpeed(float degreesPerSecond) { speed = degreesPerSecond; }
+
+	/** Moves the horn toward the commanded position at the servo's speed. */
+	void update(double timeStep) {
+		final double commanded = getCommandedPosition();
+		if (Double.isNaN(commanded)) return;
+
+		final float step = (float) (speed / range * timeStep);
+		final float error = (float) commanded - realPosition;
+		realPosition = Math.abs(error) <= step ? (float) commanded : realPosition + Math.signum(error) * step;
+	}
+
+	void writeState(double[] data, int offset) {
+		data[offset] = targetPosition;
+		data[offset + 1] = realPosition;
+		data[offset + 2] = min;
+		data[offset + 3] = max;
+		data[offset + 4] = direction == null ? -1 : direction.ordinal();
+	}
+
+	void readState(double[] data, int offset) {
+		targetPosition = data[offset];
+		realPosition = (float) data[offset + 1];
+		min = data[offset + 2];
+		max = data[offset + 3];
+		direction = data[offset + 4] < 0 ? null : DIRECTIONS[(int) data[offset + 4]];
+	}
+
 }
@@ -0,0 +1,93 @@
+package com.qualcomm.simulator;
+
+import java.awt.Color;
+import java.awt.Container;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import com.qualcomm.robotcore.hardware.TouchSensor;
+
+public class SimTouchSensor implements RobotComponent, TouchSensor {
+
+	public static final float DEFAULT_REACH = 0.5f;
+
+	private final String name;
+	private final float x, y, rotation;
+	private final Simulation simulation;
+	private final float reach;
+
+	private final BufferedImage image;
+	private static final float width = IMAGE_SCALE, height = IMAGE_SCALE / 2;
+
+	public SimTouchSensor(final float x, final float y, final float rotation, final String name, final Simulation simulation) {
+		this(x, y, rotation, name, simulation, DEFAULT_REACH);
+	}
+
+	/** The sensor is pressed when a wall or obstacle is within {@code reach} inches in front of it. */
+	public SimTouchSensor(final float x, final float y, final float rotation, final String name, final Simulation simulation, final float reach) {
+		this.name = name;
+		this.simulation = simulation;
+
+		simulation.getOpMode().hardwareMap.touchSensor.put(name, this);
+		this.x = x;
+		this.y = y;
+		this.rotation = rotation;
+		this.reach = reach;
+
+		image = new BufferedImage(Math.round(width), Math.round(height), BufferedImage.TYPE_INT_ARGB_PRE);
+		final Graphics2D g = image.createGraphics();
+		g.setColor(Color.ORANGE);
+		g.fillRect(0, 0, Math.round(width), Math.round(height));
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	@Override
+	public Container getInfoBox() {
+		return RobotComponent.createInfoBox(this, "Pressed: " + isPressed());
+	}
+
+	@Override
+	public BufferedImage getImage() {
+		return image;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public float getX() {
+		return x;
+	}
+
+	@Override
+	public float getY() {
+		return y;
+	}
+
+	@Override
+	public float getRotation() {
+		return rotation;
+	}
+
+	@Override
+	public double getValue() {
+		return isPressed() ? 1 : 0;
+	}
+
+	@Override
+	public boolean isPressed() {
+		final float fieldX = simulation.toFieldX(x, y), fieldY = simulation.toFieldY(x, y);
+		// Pushed through a wall counts as pressed too
+		if (fieldX <= 0f || fieldY <= 0f || fieldX >= Field.SIZE || fieldY >= Field.SIZE) return true;
+
+		final double heading = Math.toRadians(simulation.getRobotRotation() + rotation);
+		return simulation.getField().raycast(fieldX, fieldY, (float) Math.cos(heading), (float) -Math.sin(heading), reach) != Float.POSITIVE_INFINITY;
+	}
+
+}
@@ -0,0 +1,796 @@
+package com.qualcomm.simulator;
+
+import java.awt.Color;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Map;
+
+import com.qualcomm.robotcore.eventloop.opmode.OpMode;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.Gamepad;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.Servo;
+
+/**
+ * One robot on one field driven by one op mode. {@link Simulator} runs a single instance in real time behind the
+ * window; headless callers can create as many as they like and advance them with {@link #step(double)}.
+ *
+ * Physics, the op mode and whoever calls {@code step} each keep their own rate. Physics advances in fixed steps of
+ * {@code 1 / physicsRate}, carrying any remainder over to the next call, and the op mode loops between physics steps
+ * whenever its {@link LoopTiming} says the next loop is due.
+ */
+public class Simulation {
+
+	public enum State {
+		DISABLED, INIT, ENABLED
+	}
+
+	private static final State[] STATES = State.values();
+	private static final double WRITE_CACHE_TOLERANCE = WriteCachingMotor.DEFAULT_TOLERANCE;
+	private static final int STRICT_FORGIVEN_TICKS = 8;
+
+	private final OpMode opMode;
+	private final Field field;
+	private final ElectricalModel electrics = new ElectricalModel();
+	private final GameElements elements = new GameElements();
+	public static final double DEFAULT_PHYSICS_RATE = 1000, DEFAULT_LOOP_RATE = 60;
+	public static final float DEFAULT_TURN_RATE = 30f, DEFAULT_DRIVE_SPEED = 21.5f;
+
+	private double physicsRate = DEFAULT_PHYSICS_RATE, physicsPeriod = 1 / DEFAULT_PHYSICS_RATE;
+	private LoopTiming loopTiming = LoopTiming.fixed(DEFAULT_LOOP_RATE);
+	private final ArrayList<RobotComponent> robot = new ArrayList<RobotComponent>();
+	private final ArrayList<SimMotor> motors = new ArrayList<SimMotor>();
+	private final ArrayList<SimServo> servos = new ArrayList<SimServo>();
+	private final ArrayList<SimMotor> leftWheels = new ArrayList<SimMotor>(), rightWheels = new ArrayList<SimMotor>();
+	private final ArrayList<WriteCachingMotor> cachedMotors = new ArrayList<WriteCachingMotor>();
+	private final ArrayList<WriteCachingServo> cachedServos = new ArrayList<WriteCachingServo>();
+
+	private float robotX = 72, robotY = 72, robotRotation = 90;
+	// A copy of the pose for other threads, guarded by a sequence number that is odd while it is being written
+	private volatile int poseSequence = 0;
+	private volatile float publishedX = 72, publishedY = 72, publishedRotation = 90;
+	private final ArrayList<SimCamera> cameras = new ArrayList<SimCamera>();
+	private final ArrayList<SimOdometry> odometry = new ArrayList<SimOdometry>();
+	private State state = State.DISABLED;
+	private long tick = 0;
+
+	// Simulated seconds, and how much of the last step physics has not caught up with yet
+	private double clock = 0, pendingTime = 0;
+	private double nextLoop = 0, lastLoop = 0;
+	private long loops = 0, lastLoopNanos = 0;
+	private double loopRateStart = 0, loopRate = 0;
+	private long loopRateCount = 0;
+
+	private static final Phase[] PHASES = Phase.values();
+	private static final String[] MOTOR_SLOTS = {"power", "direction", "encoderZero", "target", "maxSpeed", "mode", "zeroPower", "velocity", "angle", "current"};
+	private static final String[] SERVO_SLOTS = {"target", "position", "min", "max", "direction"};
+	private static final String[] ELEMENT_SLOTS = {"x", "y", "vx", "vy", "rest"};
+	private static final String[] ODOMETRY_SLOTS = {"time", "nextSample", "sampleX", "sampleY", "sampleRotation", "noiseRandom.high", "noiseRandom.low"};
+	// Nanoseconds spent in each phase during the last tick
+	private final long[] phaseNanos = new long[PHASES.length];
+	// Bytes allocated by the stepping thread in each phase during the last tick, while tracking is on
+	private final long[] phaseBytes = new long[PHASES.length];
+	private com.sun.management.ThreadMXBean allocations;
+	private long strictAfterTick = -1, allocatingTicks = 0;
+
+	private GamepadSource gamepadSource;
+
+	// The robot's cell on the coverage map and the time spent there not yet added to the map
+	private CoverageMap coverage;
+	private int coverageCell = -1;
+	private double coverageTime = 0;
+
+	// Degrees per second per unit of difference between the sides, and inches per second at full speed
+	private float turnRate = DEFAULT_TURN_RATE, driveSpeed = DEFAULT_DRIVE_SPEED;
+	private Integrator integrator = Integrator.euler();
+	private final float[] stepPose = new float[3];
+
+	private float wheelSlip = 0f;
+	private SplitMix64 slipRandom;
+
+	public Simulation(final OpMode opMode) {
+		this(opMode, Field.getDefault());
+	}
+
+	public Simulation(final OpMode opMode, final Field field) {
+		this.opMode = opMode;
+		this.field = field;
+
+		opMode.hardwareMap = new HardwareMap();
+		opMode.hardwareMap.voltageSensor.put("Control Hub", electrics);
+		createRobot();
+	}
+
+	private void createRobot() {
+		robot.add(new Frame(Color.LIGHT_GRAY, 0f, 0f, 18f, 18f, 0f, "Base"));
+
+		leftWheels.add(addMotor(new SimMotor(-7f, 7f, 0f, "leftfront", opMode.hardwareMap)));
+		rightWheels.add(addMotor(new SimMotor(7f, 7f, 180f, "rightfront", opMode.hardwareMap)));
+		leftWheels.add(addMotor(new SimMotor(-7f, -7f, 0f, "leftback", opMode.hardwareMap)));
+		rightWheels.add(addMotor(new SimMotor(7f, -7f, 180f, "rightback", opMode.hardwareMap)));
+
+		robot.add(addServo(new SimServo(-5f, -6f, 0f, "claw", opMode.hardwareMap)));
+
+		robot.add(new SimDistanceSensor(0f, -8.5f, 0f, "frontdistance", this));
+		robot.add(new SimTouchSensor(4f, -8.75f, 0f, "fronttouch", this));
+		robot.add(new SimColorSensor(0f, 0f, 0f, "floorcolor", this));
+		robot.add(addCamera(new SimCamera(0f, -7f, 0f, "webcam", this)));
+		addOdometry("odometry", SimOdometry.threeWheel("odometry", 12f, 3f, SimOdometry.MAX_SAMPLE_RATE));
+
+		cacheWrites(opMode.hardwareMap);
+		elements.setFootprint(robot);
+	}
+
+	private SimServo addServo(final SimServo servo) {
+		servos.add(servo);
+		return servo;
+	}
+
+	private SimCamera addCamera(final SimCamera camera) {
+		cameras.add(camera);
+		return camera;
+	}
+
+	private void addOdometry(final String name, final SimOdometry pods) {
+		pods.reset(robotX, robotY, robotRotation);
+		odometry.add(pods);
+		opMode.hardwareMap.odometry.put(name, pods);
+		for (final OdometryPod pod : pods.getPods()) {
+			robot.add(pod);
+		}
+	}
+
+	private SimMotor addMotor(final SimMotor motor) {
+		motor.attach(electrics, electrics.add(motor.getSpec(), ElectricalModel.DEFAULT_LOAD_INERTIA));
+		robot.add(motor);
+		motors.add(motor);
+		return motor;
+	}
+
+	// Op modes only see the hardware map, so wrapping its entries puts every write from the op mode through the cache
+	private void cacheWrites(final HardwareMap map) {
+		for (final Map.Entry<String, DcMotor> entry : map.dcMotor.entrySet()) {
+			final WriteCachingMotor motor = new WriteCachingMotor(entry.getValue(), WRITE_CACHE_TOLERANCE);
+			cachedMotors.add(motor);
+			entry.setValue(motor);
+		}
+
+		for (final Map.Entry<String, Servo> entry : map.servo.entrySet()) {
+			final WriteCachingServo servo = new WriteCachingServo(entry.getValue(), WRITE_CACHE_TOLERANCE);
+			cachedServos.add(servo);
+			entry.setValue(servo);
+		}
+	}
+
+	public String getWriteCacheReport() {
+		final StringBuilder report = new StringBuilder("Device writes (issued / suppressed):\n");
+		long issued = 0, suppressed = 0;
+		for (final WriteCachingMotor motor : cachedMotors) {
+			report.append(String.format("  %-12s %8d / %8d%n", motor, motor.getIssuedCount(), motor.getSuppressedCount()));
+			issued += motor.getIssuedCount();
+			suppressed += motor.getSuppressedCount();
+		}
+		for (final WriteCachingServo servo : cachedServos) {
+			report.append(String.format("  %-12s %8d / %8d%n", servo, servo.getIssuedCount(), servo.getSuppressedCount()));
+			issued += servo.getIssuedCount();
+			suppressed += servo.getSuppressedCount();
+		}
+
+		final long total = issued + suppressed;
+		report.append(String.format("  %-12s %8d / %8d (%.1f%% saved)%n", "total", issued, suppressed, total == 0 ? 0 : 100d * suppressed / total));
+		return report.toString();
+	}
+
+	public void step(final double timeStep) { // Advances the world, the gamepads and the op mode by timeStep seconds
+		phaseNanos[Phase.PHYSICS.ordinal()] = 0;
+		phaseNanos[Phase.INPUT.ordinal()] = 0;
+		phaseNanos[Phase.OP_MODE.ordinal()] = 0;
+		phaseBytes[Phase.PHYSICS.ordinal()] = 0;
+		phaseBytes[Phase.INPUT.ordinal()] = 0;
+		phaseBytes[Phase.OP_MODE.ordinal()] = 0;
+
+		pendingTime += timeStep;
+		while (pendingTime >= physicsPeriod) {
+			final long bytes = allocatedBytes();
+			final long start = System.nanoTime();
+			worldUpdate(physicsPeriod);
+			phaseNanos[Phase.PHYSICS.ordinal()] += System.nanoTime() - start;
+			phaseBytes[Phase.PHYSICS.ordinal()] += allocatedBytes() - bytes;
+			pendingTime -= physicsPeriod;
+			clock += physicsPeriod;
+
+			if (clock >= nextLoop) {
+				loop();
+			}
+		}
+
+		flushCoverage();
+
+		if (strictAfterTick >= 0 && tick >= strictAfterTick && phaseBytes[Phase.PHYSICS.ordinal()] + phaseBytes[Phase.INPUT.ordinal()] != 0 && ++allocatingTicks > STRICT_FORGIVEN_TICKS) {
+			throw new IllegalStateException(String.format("tick %d allocated %d bytes in physics and %d in input", tick, phaseBytes[Phase.PHYSICS.ordinal()], phaseBytes[Phase.INPUT.ordinal()]));
+		}
+		tick++;
+	}
+
+	private void loop() {
+		final long inputBytes = allocatedBytes();
+		final long inputStart = System.nanoTime();
+		updateGamepads();
+		phaseNanos[Phase.INPUT.ordinal()] += System.nanoTime() - inputStart;
+		phaseBytes[Phase.INPUT.ordinal()] += allocatedBytes() - inputBytes;
+
+		final long bytes = allocatedBytes();
+		final long start = System.nanoTime();
+		if (state == State.INIT) {
+			opMode.init_loop();
+			opMode.postInitLoop();
+			start();
+		} else if (state == State.ENABLED) {
+			opMode.time += clock - lastLoop;
+			opMode.loop();
+			opMode.postLoop();
+		}
+		lastLoopNanos = System.nanoTime() - start;
+		phaseNanos[Phase.OP_MODE.ordinal()] += lastLoopNanos;
+		phaseBytes[Phase.OP_MODE.ordinal()] += allocatedBytes() - bytes;
+
+		lastLoop = clock;
+		nextLoop += loopTiming.getPeriod(loops++, lastLoopNanos);
+		// A loop can't run more often than physics steps
+		if (nextLoop < clock) nextLoop = clock;
+
+		loopRateCount++;
+		if (clock - loopRateStart >= 1) {
+			loopRate = loopRateCount / (clock - loopRateStart);
+			loopRateStart = clock;
+			loopRateCount = 0;
+		}
+	}
+
+	private void updateGamepads() {
+		if (gamepadSource != null) {
+			gamepadSource.update(clock, opMode.gamepad1, opMode.gamepad2);
+			opMode.gamepad1.latch();
+			opMode.gamepad2.latch();
+			return;
+		}
+
+		if (opMode.gamepad1 != null) opMode.gamepad1.update();
+		// Updating gamepad1 twice would latch its edges away
+		if (opMode.gamepad2 != null) opMode.gamepad2.update();
+	}
+
+	private void worldUpdate(final double timeStep) {
+		for (int i = 0; i < servos.size(); i++) {
+			servos.get(i).update(timeStep);
+		}
+		electrics.update(motors, timeStep);
+
+		// Wheel speeds as a fraction of free speed at nominal voltage, which is what power meant before the motor model.
+		// Indexed loops, since an iterator per side per physics step was most of the garbage a tick made
+		float leftAverage = 0f;
+		for (int i = 0; i < leftWheels.size(); i++) {
+			final SimMotor motor = leftWheels.get(i);
+			leftAverage += motor.getVelocity() / motor.getSpec().getFreeSpeed() * motor.getGain();
+		}
+		// leftAverage /= leftWheels.size();
+		float rightAverage = 0f;
+		for (int i = 0; i < rightWheels.size(); i++) {
+			final SimMotor motor = rightWheels.get(i);
+			rightAverage += motor.getVelocity() / motor.getSpec().getFreeSpeed() * motor.getGain();
+		}
+		// rightAverage /= rightWheels.size();
+
+		if (wheelSlip > 0f) {
+			final float traction = 1f - wheelSlip * slipRandom.nextFloat();
+			leftAverage *= traction;
+			rightAverage *= traction;
+		}
+
+		stepPose[0] = robotX;
+		stepPose[1] = robotY;
+		stepPose[2] = robotRotation;
+		integrator.integrate(stepPose, (leftAverage + rightAverage) / (leftWheels.size() + rightWheels.size()) * driveSpeed, (rightAverage - leftAverage) * turnRate, timeStep);
+		robotX = stepPose[0];
+		robotY = stepPose[1];
+		robotRotation = stepPose[2];
+		while (robotRotation >= 360f)
+			robotRotation -= 360f;
+		while (robotRotation < 0f)
+			robotRotation += 360;
+		publishPose();
+		elements.update(timeStep, field, robotX, robotY, robotRotation);
+
+		if (coverage != null) {
+			final int cell = coverage.getCell(robotX, robotY);
+			if (cell != coverageCell) {
+				flushCoverage();
+				coverageCell = cell;
+			}
+			coverageTime += timeStep;
+		}
+
+		for (int i = 0; i < odometry.size(); i++) {
+			odometry.get(i).update(timeStep, robotX, robotY, robotRotation);
+		}
+	}
+
+	// Jumps in the pose are not travel, so the pods must not count them
+	private void resetOdometry() {
+		for (final SimOdometry pods : odometry) {
+			pods.reset(robotX, robotY, robotRotation);
+		}
+	}
+
+	private void publishPose() {
+		poseSequence++;
+		publishedX = robotX;
+		publishedY = robotY;
+		publishedRotation = robotRotation;
+		poseSequence++;
+	}
+
+	/** Copies a consistent x, y and rotation into {@code pose} without ever blocking the simulation thread. */
+	public void readPose(final float[] pose) {
+		while (true) {
+			final int sequence = poseSequence;
+			if ((sequence & 1) != 0) continue;
+
+			pose[0] = publishedX;
+			pose[1] = publishedY;
+			pose[2] = publishedRotation;
+			if (poseSequence == sequence) return;
+		}
+	}
+
+	/**
+	 * Makes the wheels lose up to {@code slip} of their travel on every step, drawn uniformly from {@code seed}. Zero
+	 * turns slip off.
+	 */
+	public void setWheelSlip(final float slip, final long seed) {
+		if (slip < 0f || slip > 1f) throw new IllegalArgumentException("slip must be between 0 and 1");
+
+		wheelSlip = slip;
+		slipRandom = new SplitMix64(seed);
+	}
+
+	public float getWheelSlip() {
+		return wheelSlip;
+	}
+
+	public float getTurnRate() {
+		return turnRate;
+	}
+
+	public void setTurnRate(final float degreesPerSecond) {
+		turnRate = degreesPerSecond;
+	}
+
+	public Integrator getIntegrator() {
+		return integrator;
+	}
+
+	/** How the pose is advanced through each physics step; {@link Integrator#euler()} unless set. */
+	public void setIntegrator(final Integrator integrator) {
+		this.integrator = integrator;
+	}
+
+	public float getDriveSpeed() {
+		return driveSpeed;
+	}
+
+	public void setDriveSpeed(final float inchesPerSecond) {
+		driveSpeed = inchesPerSecond;
+	}
+
+	public boolean init() {
+		if (state == State.DISABLED) {
+			state = State.INIT;
+			resetTime();
+			opMode.init();
+			return true;
+		}
+
+		return false;
+	}
+
+	public boolean start() {
+		if (state == State.INIT) {
+			state = State.ENABLED;
+			resetTime();
+			opMode.start();
+			return true;
+		}
+
+		return false;
+	}
+
+	// Like the SDK's resetStartTime: each period of a match starts the op mode's clock from zero
+	private void resetTime() {
+		opMode.time = 0;
+		lastLoop = clock;
+	}
+
+	public boolean stop() {
+		if (state != State.DISABLED) {
+			state = State.DISABLED;
+			opMode.stop();
+			for (final SimCamera camera : cameras) {
+				camera.stopStreaming();
+			}
+			return true;
+		}
+
+		return false;
+	}
+
+	/** Allocates a snapshot sized for this simulation's robot. Reuse it for every {@link #capture} and {@link #restore}. */
+	public WorldSnapshot createSnapshot() {
+		return new WorldSnapshot(motors.size(), servos.size(), elements.getCount(), getOdometrySize());
+	}
+
+	private int getOdometrySize() {
+		int size = 0;
+		for (int i = 0; i < odometry.size(); i++) {
+			size += odometry.get(i).getStateSize();
+		}
+		return size;
+	}
+
+	public void capture(final WorldSnapshot snapshot) {
+		snapshot.checkLayout(motors.size(), servos.size(), elements.getCount(), getOdometrySize());
+
+		final double[] data = snapshot.data;
+		data[WorldSnapshot.TICK] = tick;
+		data[WorldSnapshot.TIME] = opMode.time;
+		data[WorldSnapshot.STATE] = state.ordinal();
+		data[WorldSnapshot.ROBOT_X] = robotX;
+		data[WorldSnapshot.ROBOT_Y] = robotY;
+		data[WorldSnapshot.ROBOT_ROTATION] = robotRotation;
+		data[WorldSnapshot.BATTERY_CHARGE] = electrics.getChargeUsed();
+		data[WorldSnapshot.CLOCK] = clock;
+		data[WorldSnapshot.PENDING_TIME] = pendingTime;
+		data[WorldSnapshot.NEXT_LOOP] = nextLoop;
+		data[WorldSnapshot.LAST_LOOP] = lastLoop;
+		data[WorldSnapshot.LOOPS] = loops;
+		WorldSnapshot.writeLong(slipRandom == null ? 0 : slipRandom.getState(), data, WorldSnapshot.SLIP_RANDOM);
+		WorldSnapshot.writeGamepad(opMode.gamepad1, data, WorldSnapshot.GAMEPAD1);
+		WorldSnapshot.writeGamepad(opMode.gamepad2, data, WorldSnapshot.GAMEPAD2);
+
+		int offset = WorldSnapshot.HEADER_SIZE;
+		for (int i = 0; i < motors.size(); i++, offset += WorldSnapshot.MOTOR_SIZE) {
+			motors.get(i).writeState(data, offset);
+		}
+		for (int i = 0; i < servos.size(); i++, offset += WorldSnapshot.SERVO_SIZE) {
+			servos.get(i).writeState(data, offset);
+		}
+		elements.writeState(data, offset);
+		offset += elements.getCount() * WorldSnapshot.ELEMENT_SIZE;
+		for (int i = 0; i < odometry.size(); i++) {
+			odometry.get(i).writeState(data, offset);
+			offset += odometry.get(i).getStateSize();
+		}
+	}
+
+	/**
+	 * Names for the columns {@link #fillRecord} writes: every snapshot slot, then each motor's encoder count, the bus
+	 * voltage and the time spent in each {@link Phase}.
+	 */
+	public String[] getRecordColumns() {
+		final String[] columns = new String[WorldSnapshot.HEADER_SIZE + motors.size() * (WorldSnapshot.MOTOR_SIZE + 1) + servos.size() * WorldSnapshot.SERVO_SIZE + elements.getCount() * WorldSnapshot.ELEMENT_SIZE + getOdometrySize() + 1 + 2 * PHASES.length];
+		columns[WorldSnapshot.TICK] = "tick";
+		columns[WorldSnapshot.TIME] = "time";
+		columns[WorldSnapshot.STATE] = "state";
+		columns[WorldSnapshot.ROBOT_X] = "robot.x";
+		columns[WorldSnapshot.ROBOT_Y] = "robot.y";
+		columns[WorldSnapshot.ROBOT_ROTATION] = "robot.rotation";
+		columns[WorldSnapshot.BATTERY_CHARGE] = "battery.charge";
+		columns[WorldSnapshot.CLOCK] = "clock";
+		columns[WorldSnapshot.PENDING_TIME] = "pendingTime";
+		columns[WorldSnapshot.NEXT_LOOP] = "nextLoop";
+		columns[WorldSnapshot.LAST_LOOP] = "lastLoop";
+		columns[WorldSnapshot.LOOPS] = "loops";
+		columns[WorldSnapshot.SLIP_RANDOM] = "slipRandom.high";
+		columns[WorldSnapshot.SLIP_RANDOM + 1] = "slipRandom.low";
+		for (int i = 0; i < WorldSnapshot.GAMEPAD_SIZE; i++) {
+			columns[WorldSnapshot.GAMEPAD1 + i] = "gamepad1." + WorldSnapshot.GAMEPAD_SLOTS[i];
+			columns[WorldSnapshot.GAMEPAD2 + i] = "gamepad2." + WorldSnapshot.GAMEPAD_SLOTS[i];
+		}
+
+		int column = WorldSnapshot.HEADER_SIZE;
+		for (final SimMotor motor : motors) {
+			for (final String slot : MOTOR_SLOTS) {
+				columns[column++] = motor.getName() + "." + slot;
+			}
+		}
+		for (final SimServo servo : servos) {
+			for (final String slot : SERVO_SLOTS) {
+				columns[column++] = servo.getName() + "." + slot;
+			}
+		}
+		for (int i = 0; i < elements.getCount(); i++) {
+			for (final String slot : ELEMENT_SLOTS) {
+				columns[column++] = "element" + i + "." + slot;
+			}
+		}
+		for (int i = 0; i < odometry.size(); i++) {
+			for (final String slot : ODOMETRY_SLOTS) {
+				columns[column++] = "odometry" + i + "." + slot;
+			}
+			for (final OdometryPod pod : odometry.get(i).getPods()) {
+				columns[column++] = pod.getName() + ".travel";
+			}
+		}
+		for (final SimMotor motor : motors) {
+			columns[column++] = motor.getName() + ".encoder";
+		}
+		columns[column++] = "battery.voltage";
+		for (final Phase phase : PHASES) {
+			columns[column++] = "phase." + phase.name().toLowerCase() + "_ns";
+		}
+		for (final Phase phase : PHASES) {
+			columns[column++] = "phase." + phase.name().toLowerCase() + "_bytes";
+		}
+		return columns;
+	}
+
+	/** Fills {@code row} with the columns named by {@link #getRecordColumns()}, taking the snapshot's slots as given. */
+	public void fillRecord(final WorldSnapshot snapshot, final double[] row) {
+		snapshot.checkLayout(motors.size(), servos.size(), elements.getCount(), getOdometrySize());
+
+		System.arraycopy(snapshot.data, 0, row, 0, snapshot.data.length);
+		int column = snapshot.data.length;
+		for (int i = 0; i < motors.size(); i++) {
+			row[column++] = motors.get(i).getCurrentPosition();
+		}
+		row[column++] = electrics.getVoltage();
+		for (int i = 0; i < PHASES.length; i++) {
+			row[column++] = phaseNanos[i];
+		}
+		for (int i = 0; i < PHASES.length; i++) {
+			row[column++] = phaseBytes[i];
+		}
+	}
+
+	public long getPhaseNanos(final Phase phase) {
+		return phaseNanos[phase.ordinal()];
+	}
+
+	/** For phases the simulation does not run itself, such as rendering. */
+	public void setPhaseNanos(final Phase phase, final long nanos) {
+		phaseNanos[phase.ordinal()] = nanos;
+	}
+
+	/** Bytes the phase allocated during the last tick; always 0 unless allocation tracking is on. */
+	public long getPhaseBytes(final Phase phase) {
+		return phaseBytes[phase.ordinal()];
+	}
+
+	public void setPhaseBytes(final Phase phase, final long bytes) {
+		phaseBytes[phase.ordinal()] = bytes;
+	}
+
+	/**
+	 * Counts the bytes each phase allocates on the thread calling {@link #step}. Reading the counter around every
+	 * physics step costs a little, so it is off by default.
+	 */
+	public void setAllocationTracking(final boolean tracking) {
+		allocations = tracking ? (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean() : null;
+		if (!tracking) strictAfterTick = -1;
+	}
+
+	public boolean isAllocationTracking() {
+		return allocations != null;
+	}
+
+	/**
+	 * Makes {@link #step} throw {@link IllegalStateException} once {@code warmupTicks} more ticks have run if physics
+	 * or input allocated anything during the tick. The op mode's own loop is not held to it. The JVM allocates a
+	 * little the first time compiled code falls back to a path it had not taken, so the first few allocating ticks
+	 * are forgiven; real garbage repeats. Turns on allocation tracking; a negative count turns strict mode off.
+	 */
+	public void setStrictAllocation(final long warmupTicks) {
+		if (warmupTicks < 0) {
+			strictAfterTick = -1;
+			return;
+		}
+
+		setAllocationTracking(true);
+		strictAfterTick = tick + warmupTicks;
+		allocatingTicks = 0;
+	}
+
+	private long allocatedBytes() {
+		return allocations == null ? 0 : allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Puts the world back exactly as it was when the snapshot was captured. The op mode's lifecycle methods are not
+	 * called and its own fields are left alone, so op modes that keep state between loops resume with their current
+	 * values.
+	 */
+	public void restore(final WorldSnapshot snapshot) {
+		snapshot.checkLayout(motors.size(), servos.size(), elements.getCount(), getOdometrySize());
+
+		final double[] data = snapshot.data;
+		tick = (long) data[WorldSnapshot.TICK];
+		opMode.time = data[WorldSnapshot.TIME];
+		state = STATES[(int) data[WorldSnapshot.STATE]];
+		robotX = (float) data[WorldSnapshot.ROBOT_X];
+		robotY = (float) data[WorldSnapshot.ROBOT_Y];
+		robotRotation = (float) data[WorldSnapshot.ROBOT_ROTATION];
+		electrics.setChargeUsed(data[WorldSnapshot.BATTERY_CHARGE]);
+		clock = data[WorldSnapshot.CLOCK];
+		pendingTime = data[WorldSnapshot.PENDING_TIME];
+		nextLoop = data[WorldSnapshot.NEXT_LOOP];
+		lastLoop = data[WorldSnapshot.LAST_LOOP];
+		loops = (long) data[WorldSnapshot.LOOPS];
+		if (slipRandom != null) slipRandom.setState(WorldSnapshot.readLong(data, WorldSnapshot.SLIP_RANDOM));
+		loopRateStart = clock;
+		loopRateCount = 0;
+		publishPose();
+		resetOdometry();
+		WorldSnapshot.readGamepad(opMode.gamepad1, data, WorldSnapshot.GAMEPAD1);
+		WorldSnapshot.readGamepad(opMode.gamepad2, data, WorldSnapshot.GAMEPAD2);
+		// The snapshot was taken after the last latch, so there are no edges to carry over
+		if (opMode.gamepad1 != null) opMode.gamepad1.clearEdges();
+		if (opMode.gamepad2 != null) opMode.gamepad2.clearEdges();
+
+		int offset = WorldSnapshot.HEADER_SIZE;
+		for (int i = 0; i < motors.size(); i++, offset += WorldSnapshot.MOTOR_SIZE) {
+			motors.get(i).readState(data, offset);
+		}
+		for (int i = 0; i < servos.size(); i++, offset += WorldSnapshot.SERVO_SIZE) {
+			servos.get(i).readState(data, offset);
+		}
+		elements.readState(data, offset);
+		offset += elements.getCount() * WorldSnapshot.ELEMENT_SIZE;
+		for (int i = 0; i < odometry.size(); i++) {
+			odometry.get(i).readState(data, offset);
+			offset += odometry.get(i).getStateSize();
+		}
+
+		// The devices no longer hold what the caches last sent them
+		for (final WriteCachingMotor motor : cachedMotors) {
+			motor.invalidate();
+		}
+		for (final WriteCachingServo servo : cachedServos) {
+			servo.invalidate();
+		}
+	}
+
+	public OpMode getOpMode() {
+		return opMode;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public long getTick() {
+		return tick;
+	}
+
+	public ArrayList<RobotComponent> getRobot() {
+		return robot;
+	}
+
+	public ArrayList<SimMotor> getMotors() {
+		return motors;
+	}
+
+	public ArrayList<SimServo> getServos() {
+		return servos;
+	}
+
+	public float getRobotX() {
+		return robotX;
+	}
+
+	public float getRobotY() {
+		return robotY;
+	}
+
+	public float getRobotRotation() {
+		return robotRotation;
+	}
+
+	/**
+	 * Field x of a point given in robot coordinates: inches from the robot's centre, x to its right and y to its back,
+	 * the same coordinates components are placed with.
+	 */
+	public float toFieldX(final float x, final float y) {
+		final double rotation = Math.toRadians(robotRotation);
+		return (float) (robotX + x * Math.sin(rotation) - y * Math.cos(rotation));
+	}
+
+	public float toFieldY(final float x, final float y) {
+		final double rotation = Math.toRadians(robotRotation);
+		return (float) (robotY + x * Math.cos(rotation) + y * Math.sin(rotation));
+	}
+
+	public ArrayList<SimOdometry> getOdometry() {
+		return odometry;
+	}
+
+	/** Add elements before creating any snapshots, since snapshots are sized for the elements there are. */
+	public GameElements getElements() {
+		return elements;
+	}
+
+	public ElectricalModel getElectrics() {
+		return electrics;
+	}
+
+	public double getPhysicsRate() {
+		return physicsRate;
+	}
+
+	/** Physics steps per simulated second. */
+	public void setPhysicsRate(final double rate) {
+		if (rate <= 0) throw new IllegalArgumentException("rate must be positive");
+		physicsRate = rate;
+		physicsPeriod = 1 / rate;
+	}
+
+	/** Adds the time the robot spends over each cell to {@code map} from now on; null stops. Maps can be shared. */
+	public void setCoverage(final CoverageMap map) {
+		flushCoverage();
+		coverage = map;
+		coverageCell = -1;
+	}
+
+	public CoverageMap getCoverage() {
+		return coverage;
+	}
+
+	private void flushCoverage() {
+		if (coverage != null && coverageTime > 0) coverage.add(coverageCell, Math.round(coverageTime * 1e9));
+		coverageTime = 0;
+	}
+
+	/** Takes the op mode's gamepads from {@code source} instead of updating them, or from the gamepads again if null. */
+	public void setGamepadSource(final GamepadSource source) {
+		if (source != null) {
+			if (opMode.gamepad1 == null) opMode.gamepad1 = new Gamepad();
+			if (opMode.gamepad2 == null) opMode.gamepad2 = new Gamepad();
+		}
+		gamepadSource = source;
+	}
+
+	public LoopTiming getLoopTiming() {
+		return loopTiming;
+	}
+
+	public void setLoopTiming(final LoopTiming loopTiming) {
+		this.loopTiming = loopTiming;
+	}
+
+	/** Simulated seconds since the simulation was created. */
+	public double getClock() {
+		return clock;
+	}
+
+	/** Op mode loops per simulated second, averaged over the last second. */
+	public double getLoopRate() {
+		return loopRate;
+	}
+
+	/** How long the op mode's last loop took to run on this machine. */
+	public long getLastLoopNanos() {
+		return lastLoopNanos;
+	}
+
+	public Field getField() {
+		return field;
+	}
+
+	public void setRobotPose(final float x, final float y, final float rotation) {
+		robotX = x;
+		robotY = y;
+		robotRotation = rotation;
+		publishPose();
+		resetOdometry();
+	}
+
+}
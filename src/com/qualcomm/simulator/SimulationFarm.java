@@ -0,0 +1,362 @@
+package com.qualcomm.simulator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.ProcessBuilder.Redirect;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.qualcomm.ftcrobotcontroller.opmodes.ExampleAutonomous;
+import com.qualcomm.ftcrobotcontroller.opmodes.ExampleOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.OpMode;
+
+/**
+ * Spreads headless runs over several worker JVMs on this machine, so an op mode that throws, hangs, leaks or exits
+ * loses only its own job. Each worker is {@code Simulator worker=<port>}: it connects back to its own loopback port
+ * here, then reads one {@link Job} line at a time and answers with one {@link Result} line. A worker that dies, fails
+ * to connect, or takes longer than the timeout is killed and started again, and its job is retried once before it is
+ * reported as crashed. {@code Simulator worker} does the same over stdin and stdout, for driving it from other tools.
+ */
+public class SimulationFarm {
+
+	public static final long DEFAULT_TIMEOUT = 60000;
+	private static final int MAX_ATTEMPTS = 2;
+	// How often a worker that hasn't connected yet is checked for having died
+	private static final int ACCEPT_POLL = 100;
+	private static final double TIME_STEP = 1d / 60;
+
+	/** One headless run, written on one line as {@code key=value} pairs with the gamepad script last. */
+	public static class Job {
+		public final int id;
+		public final String opMode;
+		public final float x, y, rotation;
+		public final double duration;
+		// A ScriptedGamepads script with statements separated by semicolons, or empty
+		public final String script;
+		int attempts = 0;
+
+		public Job(final int id, final Class<? extends OpMode> opMode, final float x, final float y, final float rotation, final double duration, final String script) {
+			this(id, opMode.getName(), x, y, rotation, duration, script);
+		}
+
+		Job(final int id, final String opMode, final float x, final float y, final float rotation, final double duration, final String script) {
+			if (script.indexOf('\n') >= 0) throw new IllegalArgumentException("separate script statements with ';' rather than new lines");
+
+			this.id = id;
+			this.opMode = opMode;
+			this.x = x;
+			this.y = y;
+			this.rotation = rotation;
+			this.duration = duration;
+			this.script = script;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "id=%d opmode=%s x=%s y=%s rotation=%s duration=%s script=%s", id, opMode, x, y, rotation, duration, script);
+		}
+
+		static Job parse(final String line) {
+			final int scriptStart = line.indexOf(" script=");
+			final String script = scriptStart < 0 ? "" : line.substring(scriptStart + 8);
+			int id = -1;
+			String opMode = null;
+			float x = 72, y = 72, rotation = 90;
+			double duration = 30;
+			for (final String pair : (scriptStart < 0 ? line : line.substring(0, scriptStart)).trim().split("\\s+")) {
+				final int equals = pair.indexOf('=');
+				if (equals < 0) throw new IllegalArgumentException("expected key=value: " + pair);
+				final String key = pair.substring(0, equals), value = pair.substring(equals + 1);
+				if (key.equals("id")) {
+					id = Integer.parseInt(value);
+				} else if (key.equals("opmode")) {
+					opMode = value;
+				} else if (key.equals("x")) {
+					x = Float.parseFloat(value);
+				} else if (key.equals("y")) {
+					y = Float.parseFloat(value);
+				} else if (key.equals("rotation")) {
+					rotation = Float.parseFloat(value);
+				} else if (key.equals("duration")) {
+					duration = Double.parseDouble(value);
+				} else {
+					throw new IllegalArgumentException("unknown job key: " + key);
+				}
+			}
+			if (opMode == null) throw new IllegalArgumentException("job has no opmode: " + line);
+			return new Job(id, opMode, x, y, rotation, duration, script);
+		}
+	}
+
+	public static class Result {
+		public enum Status {
+			OK, ERROR, CRASHED
+		}
+
+		public final int id;
+		public final Status status;
+		public final float finalX, finalY, finalRotation;
+		public final long ticks, millis;
+		public final String message;
+
+		Result(final int id, final Status status, final float finalX, final float finalY, final float finalRotation, final long ticks, final long millis, final String message) {
+			this.id = id;
+			this.status = status;
+			this.finalX = finalX;
+			this.finalY = finalY;
+			this.finalRotation = finalRotation;
+			this.ticks = ticks;
+			this.millis = millis;
+			this.message = message;
+		}
+
+		static Result failed(final int id, final Status status, final String message) {
+			return new Result(id, status, Float.NaN, Float.NaN, Float.NaN, 0, 0, message);
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "id=%d status=%s x=%s y=%s rotation=%s ticks=%d millis=%d message=%s", id, status.name().toLowerCase(Locale.ROOT), finalX, finalY, finalRotation, ticks, millis, message);
+		}
+
+		static Result parse(final String line) {
+			final int messageStart = line.indexOf(" message=");
+			final String[] pairs = line.substring(0, messageStart).split(" ");
+			final String[] values = new String[pairs.length];
+			for (int i = 0; i < pairs.length; i++) {
+				values[i] = pairs[i].substring(pairs[i].indexOf('=') + 1);
+			}
+			return new Result(Integer.parseInt(values[0]), Status.valueOf(values[1].toUpperCase(Locale.ROOT)), Float.parseFloat(values[2]), Float.parseFloat(values[3]), Float.parseFloat(values[4]), Long.parseLong(values[5]), Long.parseLong(values[6]), line.substring(messageStart + 9));
+		}
+	}
+
+	private final int workers;
+	private long timeout = DEFAULT_TIMEOUT;
+	private final ArrayList<String> jvmOptions = new ArrayList<String>();
+	private final AtomicInteger restarts = new AtomicInteger();
+
+	public SimulationFarm(final int workers) {
+		this.workers = workers;
+	}
+
+	/** Milliseconds a single job may take before its worker is presumed hung. */
+	public SimulationFarm setTimeout(final long millis) {
+		timeout = millis;
+		return this;
+	}
+
+	/** Passed to every worker JVM, such as {@code -Xmx256m} to make a leaking op mode fail fast. */
+	public SimulationFarm addJvmOption(final String option) {
+		jvmOptions.add(option);
+		return this;
+	}
+
+	public int getRestartCount() {
+		return restarts.get();
+	}
+
+	/** Runs every job and returns the results in job order. */
+	public List<Result> run(final List<Job> jobs) throws IOException, InterruptedException {
+		final ConcurrentLinkedQueue<Job> queue = new ConcurrentLinkedQueue<Job>(jobs);
+		final List<Result> results = Collections.synchronizedList(new ArrayList<Result>());
+
+		final ArrayList<Thread> threads = new ArrayList<Thread>();
+		final ArrayList<IOException> failures = new ArrayList<IOException>();
+		for (int i = 0; i < Math.min(workers, jobs.size()); i++) {
+			final Thread thread = new Thread(() -> {
+				try {
+					drive(queue, results);
+				} catch (final IOException e) {
+					synchronized (failures) {
+						failures.add(e);
+					}
+				}
+			}, "SimulationFarm-" + i);
+			thread.start();
+			threads.add(thread);
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		if (!failures.isEmpty()) throw failures.get(0);
+
+		final ArrayList<Result> merged = new ArrayList<Result>(results);
+		merged.sort((a, b) -> Integer.compare(a.id, b.id));
+		return merged;
+	}
+
+	// Feeds one worker from the queue, restarting it whenever it dies or hangs
+	private void drive(final ConcurrentLinkedQueue<Job> queue, final List<Result> results) throws IOException {
+		try (final ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			Process process = null;
+			Socket socket = null;
+			BufferedReader in = null;
+			PrintWriter out = null;
+
+			try {
+				Job job;
+				while ((job = queue.poll()) != null) {
+					if (process == null) {
+						process = startWorker(server.getLocalPort());
+						socket = accept(server, process);
+						if (socket != null) {
+							socket.setSoTimeout((int) timeout);
+							in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+							out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+						}
+					}
+
+					job.attempts++;
+					String line = null;
+					if (socket != null) {
+						out.println(job);
+						try {
+							line = in.readLine();
+						} catch (final IOException e) {
+							// Timed out or lost the connection
+							line = null;
+						}
+					}
+
+					if (line != null) {
+						results.add(Result.parse(line));
+						continue;
+					}
+
+					// The worker died, hung or never connected, which is charged to the job it was meant to run
+					process.destroyForcibly();
+					if (socket != null) socket.close();
+					socket = null;
+					process = null;
+					restarts.incrementAndGet();
+					if (job.attempts < MAX_ATTEMPTS) {
+						queue.add(job);
+					} else {
+						results.add(Result.failed(job.id, Result.Status.CRASHED, "worker died, hung or never connected " + job.attempts + " times"));
+					}
+				}
+			} finally {
+				if (socket != null) socket.close();
+				if (process != null) {
+					process.destroy();
+					try {
+						process.waitFor(1, TimeUnit.SECONDS);
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+		}
+	}
+
+	// The worker's connection, or null if it exits or the timeout passes first
+	private Socket accept(final ServerSocket server, final Process process) throws IOException {
+		final long deadline = System.nanoTime() + timeout * 1000000;
+		server.setSoTimeout(ACCEPT_POLL);
+		while (true) {
+			try {
+				return server.accept();
+			} catch (final SocketTimeoutException e) {
+				if (!process.isAlive() || System.nanoTime() - deadline >= 0) return null;
+			}
+		}
+	}
+
+	private Process startWorker(final int port) throws IOException {
+		final ArrayList<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.addAll(jvmOptions);
+		command.add("-Djava.awt.headless=true");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(Simulator.class.getName());
+		command.add("worker=" + port);
+		// Whatever op modes print goes to our console; only the socket carries results
+		return new ProcessBuilder(command).redirectOutput(Redirect.INHERIT).redirectError(Redirect.INHERIT).start();
+	}
+
+	/** The worker side: answers job lines from {@code in} with result lines on {@code out} until {@code in} ends. */
+	static void work(final BufferedReader in, final Writer out) throws IOException {
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (line.trim().isEmpty()) continue;
+
+			Result result;
+			int id = -1;
+			try {
+				final Job job = Job.parse(line);
+				id = job.id;
+				result = runJob(job);
+			} catch (final Exception e) {
+				result = Result.failed(id, Result.Status.ERROR, String.valueOf(e).replace('\n', ' '));
+			}
+			out.write(result.toString());
+			out.write('\n');
+			out.flush();
+		}
+	}
+
+	static Result runJob(final Job job) throws ReflectiveOperationException {
+		final long start = System.nanoTime();
+		final OpMode opMode = Class.forName(job.opMode).asSubclass(OpMode.class).getDeclaredConstructor().newInstance();
+		final Simulation simulation = new Simulation(opMode);
+		simulation.setRobotPose(job.x, job.y, job.rotation);
+		if (!job.script.isEmpty()) simulation.setGamepadSource(new ScriptedGamepads(job.script));
+
+		simulation.init();
+		final long steps = Math.round(job.duration / TIME_STEP);
+		for (long i = 0; i < steps; i++) {
+			simulation.step(TIME_STEP);
+		}
+		simulation.stop();
+
+		return new Result(job.id, Result.Status.OK, simulation.getRobotX(), simulation.getRobotY(), simulation.getRobotRotation(), simulation.getTick(), (System.nanoTime() - start) / 1000000, "");
+	}
+
+	/** {@code SimulationFarm [workers]}: a sweep of the example op modes over a grid of start poses and drives. */
+	public static void main(final String[] args) throws IOException, InterruptedException {
+		final int workers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		final String[] scripts = {"left_stick_y=-1 at 0s for 3s", "left_stick_y=-0.6 at 0s for 4s; left_stick_x=0.4 at 0s for 4s", "press dpad_up at 0.05s; left_stick_y=-0.8 at 0.2s for 2s; right_stick_y=0.8 at 0.2s for 2s"};
+
+		final ArrayList<Job> jobs = new ArrayList<Job>();
+		for (int x = 24; x <= 120; x += 24) {
+			for (int y = 24; y <= 120; y += 24) {
+				jobs.add(new Job(jobs.size(), ExampleAutonomous.class, x, y, 90, 8, ""));
+				for (final String script : scripts) {
+					jobs.add(new Job(jobs.size(), ExampleOpMode.class, x, y, 90, 5, script));
+				}
+			}
+		}
+
+		final SimulationFarm farm = new SimulationFarm(workers).addJvmOption("-Xmx256m");
+		final long start = System.nanoTime();
+		final List<Result> results = farm.run(jobs);
+		final long elapsed = (System.nanoTime() - start) / 1000000;
+
+		int ok = 0;
+		for (final Result result : results) {
+			if (result.status == Result.Status.OK) {
+				ok++;
+			} else {
+				System.out.println(result);
+			}
+		}
+		System.out.println(String.format("%d jobs on %d workers in %d ms: %d ok, %d failed, %d worker restarts", jobs.size(), workers, elapsed, ok, results.size() - ok, farm.getRestartCount()));
+	}
+
+}
@@ -1,185 +1,423 @@
 package com.qualcomm.simulator;
 
-import java.awt.Color;
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-
-import net.java.games.input.Controller;
-import net.java.games.input.Controller.Type;
-import net.java.games.input.ControllerEnvironment;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
 
 import com.qualcomm.ftcrobotcontroller.opmodes.ExampleOpMode;
 import com.qualcomm.robotcore.eventloop.opmode.OpMode;
-import com.qualcomm.robotcore.hardware.HardwareMap;
 
 public class Simulator {
 
 	private static OpMode opMode;
-	private static ArrayList<RobotComponent> robot = new ArrayList<RobotComponent>();
-	private static float robotX = 72, robotY = 72, robotRotation = 90;
-	private static ArrayList<SimMotor> leftWheels = new ArrayList<SimMotor>(), rightWheels = new ArrayList<SimMotor>();
+	private static Simulation simulation;
+	private static final ArrayList<RobotComponent> NO_ROBOT = new ArrayList<RobotComponent>();
 
+	// Ticks per second: how often the simulation is stepped and recorded. Physics and the op mode set their own rates.
 	private static final int TARGET_FPS = 60;
 	private static float currentFPS = 0;
-
-	private static Window window = new Window();
-
-	private static final ControllerEnvironment CONTROLLER_ENVIONMENT = ControllerEnvironment.getDefaultEnvironment();
-
-	private enum State {
-		DISABLED, INIT, ENABLED
-	}
-
-	private static State state = State.DISABLED;
-
-	public static void main(final String[] args) {
-		// TODO clean up this mess
-		for (final Controller c : CONTROLLER_ENVIONMENT.getControllers()) {
-			if (c.getType() == Type.GAMEPAD || c.getType() == Type.STICK) {
-				if (opMode.gamepad1 == null) {
-					opMode.gamepad1 = new ControllerGamepad(c);
-				} else if (opMode.gamepad2 == null) {
-					opMode.gamepad2 = new ControllerGamepad(c);
-				}
-			}
+	private static volatile double renderRate = getDisplayRefreshRate();
+	private static volatile double timeScale = 1;
+	private static volatile double fixedLoopRate = Simulation.DEFAULT_LOOP_RATE;
+	private static volatile long allocatedBytesPerTick = 0;
+	// Averages over the last second, by phase; rendering is per frame rather than per tick
+	private static final long[] phaseBytesPerTick = new long[Phase.values().length];
+	// Changes from other threads, applied between ticks
+	private static final ConcurrentLinkedQueue<Consumer<Simulation>> pending = new ConcurrentLinkedQueue<Consumer<Simulation>>();
+
+	private static final int HISTORY_MINUTES = 5, KEYFRAME_INTERVAL = TARGET_FPS;
+	private static SessionHistory history;
+	private static WorldSnapshot snapshot;
+	// -1 while live, otherwise the history frame being shown
+	private static volatile long reviewFrame = -1;
+	private static volatile boolean replaying = false, resumeRequested = false, stepRequested = false;
+	private static long shownFrame = -1;
+
+	private static SessionRecorder recorder;
+	private static double[] recordRow;
+
+	// Where the robot has been this session, for the window's heatmap and optionally a file on exit
+	private static final RewindableCoverageMap coverage = new RewindableCoverageMap();
+	private static Path coverageFile;
+
+	private static ControllerDiscovery controllers;
+	private static volatile MatchClock match;
+
+	private static Window window;
+
+	/**
+	 * Options, all optional: {@code physics=<Hz>}, {@code integrator=euler|midpoint|rk4|arc}, {@code loop=<Hz>},
+	 * {@code loop=<min Hz>-<max Hz>}, {@code loop=measured}, {@code render=<Hz>}, {@code ds=<port>} to take gamepads
+	 * from a {@link DriverStationEmulator} instead of local controllers, and {@code record=<file>} to record the
+	 * session for {@link SessionQuery}. {@code match=full|auto|teleop} runs a {@link MatchClock} from the start.
+	 * {@code coverage=<file>} writes where the robot spent the session as a {@link CoverageMap}, PNG or CSV by the file's
+	 * extension. {@code elements=<count>} scatters that many samples over the field as {@link GameElements}.
+	 * {@code worker} or {@code worker=<port>} runs headless jobs for a {@link SimulationFarm}
+	 * instead of opening a window.
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length > 0 && args[0].startsWith("worker")) {
+			work(args[0]);
+			return;
 		}
 
-// boolean a = true;
-// while (a) {
-// controller1.poll();
-// for (int i = 0; i < controller1.getComponents().length; i++) {
-// net.java.games.input.Component c = controller1.getComponents()[i];
-// System.out.println("[" + i + "] " + c.getName() + ", " + c.getIdentifier() + ": " + c.getPollData());
-// }
-//
-// try { System.in.read(); } catch (IOException e) { e.printStackTrace(); }
-// }
-
+		window = new Window();
 		// create window and simulation graphics
 		opMode = new ExampleOpMode();
+		final ControllerGamepad gamepad1 = new ControllerGamepad(), gamepad2 = new ControllerGamepad();
+		opMode.gamepad1 = gamepad1;
+		opMode.gamepad2 = gamepad2;
+		simulation = new Simulation(opMode);
+		simulation.setAllocationTracking(true);
+		simulation.setCoverage(coverage);
+		for (final String arg : args) {
+			configure(arg);
+		}
+		// Loading jinput's natives can take seconds, so the gamepads rest until controllers turn up
+		if (opMode.gamepad1 == gamepad1) {
+			controllers = new ControllerDiscovery(gamepad1, gamepad2);
+			controllers.start();
+		}
+		snapshot = simulation.createSnapshot();
+		history = new SessionHistory(snapshot.size(), KEYFRAME_INTERVAL, HISTORY_MINUTES * 60 * TARGET_FPS);
 		window.repaint();
-		opMode.hardwareMap = new HardwareMap();
-		createRobot();
+		simulation.init();
+		if (match != null) match.start(simulation);
 		window.refreshComponents();
+		SimulatorManagement.register();
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			System.out.print(simulation.getWriteCacheReport());
+			if (coverageFile != null) {
+				try {
+					coverage.write(coverageFile);
+					System.out.println(String.format("Wrote %.0f s of coverage to %s", coverage.getTotalSeconds(), coverageFile));
+				} catch (final IOException e) {
+					e.printStackTrace();
+				}
+			}
+			if (recorder != null) {
+				try {
+					recorder.close();
+					System.out.println(String.format("Recorded %d rows, %d dropped", recorder.getRowCount(), recorder.getDroppedCount()));
+				} catch (final IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}));
 		new Thread(loop()).start();
 	}
 
-	private static void createRobot() {
-		robot.add(new Frame(Color.LIGHT_GRAY, 0f, 0f, 18f, 18f, 0f, "Base"));
+	private static void work(final String arg) throws IOException {
+		if (arg.equals("worker")) {
+			SimulationFarm.work(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+			return;
+		}
 
-		robot.add(new SimMotor(-7f, 7f, 0f, "leftfront", opMode.hardwareMap));
-		leftWheels.add((SimMotor) robot.get(1));
-		robot.add(new SimMotor(7f, 7f, 180f, "rightfront", opMode.hardwareMap));
-		rightWheels.add((SimMotor) robot.get(2));
-		robot.add(new SimMotor(-7f, -7f, 0f, "leftback", opMode.hardwareMap));
-		leftWheels.add((SimMotor) robot.get(3));
-		robot.add(new SimMotor(7f, -7f, 180f, "rightback", opMode.hardwareMap));
-		rightWheels.add((SimMotor) robot.get(4));
+		final int port = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+		try (final Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			SimulationFarm.work(new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)), new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+		}
+	}
 
-		init();
+	private static void configure(final String arg) {
+		final int split = arg.indexOf('=');
+		if (split < 0) throw new IllegalArgumentException("expected option=value: " + arg);
+		final String option = arg.substring(0, split), value = arg.substring(split + 1);
+
+		if (option.equals("physics")) {
+			simulation.setPhysicsRate(Double.parseDouble(value));
+		} else if (option.equals("integrator")) {
+			simulation.setIntegrator(Integrator.forName(value));
+		} else if (option.equals("ds")) {
+			try {
+				final DriverStationReceiver receiver = new DriverStationReceiver(value.isEmpty() ? DriverStationReceiver.DEFAULT_PORT : Integer.parseInt(value));
+				opMode.gamepad1 = receiver.getGamepad1();
+				opMode.gamepad2 = receiver.getGamepad2();
+				Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.print(receiver.getReport())));
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		} else if (option.equals("record")) {
+			try {
+				recorder = new SessionRecorder(Paths.get(value), simulation.getRecordColumns());
+				recordRow = new double[recorder.getColumnCount()];
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		} else if (option.equals("coverage")) {
+			coverageFile = Paths.get(value);
+		} else if (option.equals("elements")) {
+			simulation.getElements().scatter(Integer.parseInt(value), 0, simulation.getField(), simulation.getRobotX(), simulation.getRobotY(), 16);
+		} else if (option.equals("match")) {
+			match = MatchClock.forName(value);
+		} else if (option.equals("render")) {
+			renderRate = Double.parseDouble(value);
+		} else if (option.equals("loop")) {
+			final int dash = value.indexOf('-');
+			if (value.equals("measured")) {
+				// A hub spends a few milliseconds a loop on hardware traffic and runs code several times slower
+				simulation.setLoopTiming(LoopTiming.measured(4, 0.003, 300));
+				fixedLoopRate = Double.NaN;
+			} else if (dash > 0) {
+				simulation.setLoopTiming(LoopTiming.random(Double.parseDouble(value.substring(0, dash)), Double.parseDouble(value.substring(dash + 1)), System.nanoTime()));
+				fixedLoopRate = Double.NaN;
+			} else {
+				fixedLoopRate = Double.parseDouble(value);
+				simulation.setLoopTiming(LoopTiming.fixed(fixedLoopRate));
+			}
+		} else {
+			throw new IllegalArgumentException("unknown option: " + option);
+		}
+	}
+
+	private static double getDisplayRefreshRate() {
+		if (GraphicsEnvironment.isHeadless()) return TARGET_FPS;
+
+		final int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+		return rate == DisplayMode.REFRESH_RATE_UNKNOWN ? TARGET_FPS : rate;
 	}
 
 	private static Runnable loop() {
 		return () -> {
 			long deltaTime, currentTime, previousTime = System.nanoTime(), deltaSecond, previousSecond = System.nanoTime();
+			long nextRender = previousTime;
 			int fpsCount = 0;
+			long allocated = 0;
+			final long[] phaseAllocated = new long[Phase.values().length];
+
+			final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			final long thread = Thread.currentThread().getId();
 
 			while (true) {
 				currentTime = System.nanoTime();
 				deltaTime = currentTime - previousTime;
 
-				if (deltaTime >= 1000000000 / TARGET_FPS) {
+				if (currentTime >= nextRender) {
+					window.refreshWorld();
+					nextRender += (long) (1e9 / renderRate);
+					if (nextRender < currentTime) nextRender = currentTime;
+				}
+
+				// At full speed ticks follow each other without waiting, except while reviewing
+				if (deltaTime >= 1000000000 / TARGET_FPS || Double.isInfinite(timeScale) && reviewFrame < 0) {
 					previousTime = currentTime;
 					fpsCount++;
+					final long allocatedBefore = threads.getThreadAllocatedBytes(thread);
 					fixedUpdate();
+					allocated += threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+					phaseAllocated[Phase.PHYSICS.ordinal()] += simulation.getPhaseBytes(Phase.PHYSICS);
+					phaseAllocated[Phase.INPUT.ordinal()] += simulation.getPhaseBytes(Phase.INPUT);
+					phaseAllocated[Phase.OP_MODE.ordinal()] += simulation.getPhaseBytes(Phase.OP_MODE);
 
 					currentTime = System.nanoTime();
 					deltaSecond = currentTime - previousSecond;
 
 					if (deltaSecond >= 1000000000) {
 						setCurrentFPS(fpsCount / (deltaSecond / 1000000000));
+						allocatedBytesPerTick = allocated / Math.max(1, fpsCount);
+						for (int i = 0; i < phaseAllocated.length; i++) {
+							phaseBytesPerTick[i] = phaseAllocated[i] / Math.max(1, fpsCount);
+							phaseAllocated[i] = 0;
+						}
+						phaseBytesPerTick[Phase.RENDER.ordinal()] = simulation.getPhaseBytes(Phase.RENDER);
 						previousSecond = currentTime;
 						fpsCount = 0;
+						allocated = 0;
 					}
 				}
 			}
 		};
 	}
 
-	private static void fixedUpdate() { // Update always advances (1 / targetFPS) of a second
-		worldUpdate(1d / TARGET_FPS);
+	private static void fixedUpdate() { // Update advances (timeScale / targetFPS) of a second, or 1 / targetFPS at full speed
+		Consumer<Simulation> change;
+		while ((change = pending.poll()) != null) {
+			change.accept(simulation);
+		}
 
-		updateGamepads();
+		if (resumeRequested) {
+			resumeRequested = false;
+			if (reviewFrame >= 0) {
+				history.truncate(reviewFrame);
+				coverage.rewind(reviewFrame);
+			}
+			reviewFrame = -1;
+			replaying = false;
+			shownFrame = -1;
+		}
 
-		if (state == State.INIT) {
-			opMode.init_loop();
-			opMode.postInitLoop();
-			start();
-		} else if (state == State.ENABLED) {
-			opMode.time += 1d / TARGET_FPS;
-			opMode.loop();
-			opMode.postLoop();
+		if (stepRequested) {
+			stepRequested = false;
+			// Continue from the frame being shown, exactly as resuming would, then pause on the new frame
+			final long frame = reviewFrame < 0 ? history.getLastFrame() : reviewFrame;
+			showFrame(frame);
+			history.truncate(frame);
+			coverage.rewind(frame);
+			tick();
+			replaying = false;
+			shownFrame = history.getLastFrame();
+			reviewFrame = shownFrame;
+			return;
 		}
 
-		window.repaint();
-	}
+		final long frame = reviewFrame;
+		if (frame < 0) {
+			tick();
+		} else {
+			if (replaying) {
+				if (frame < history.getLastFrame()) {
+					reviewFrame = frame + 1;
+				} else {
+					replaying = false;
+				}
+			}
 
-	private static void updateGamepads() {
-		if (opMode.gamepad1 != null) opMode.gamepad1.update();
-		if (opMode.gamepad2 != null) opMode.gamepad1.update();
-
-// controller1.poll();
-// opMode.gamepad1.a = controller1.getComponents()[5].getPollData() == 1f;
-// opMode.gamepad1.b = controller1.getComponents()[6].getPollData() == 1f;
-// opMode.gamepad1.x = controller1.getComponents()[7].getPollData() == 1f;
-// opMode.gamepad1.y = controller1.getComponents()[8].getPollData() == 1f;
-// opMode.gamepad1.left_bumper = controller1.getComponents()[9].getPollData() == 1f;
-// opMode.gamepad1.right_bumper = controller1.getComponents()[10].getPollData() == 1f;
-// opMode.gamepad1.back = controller1.getComponents()[11].getPollData() == 1f;
-// opMode.gamepad1.start = controller1.getComponents()[12].getPollData() == 1f; // TODO better
-// opMode.gamepad1.left_stick_button = controller1.getComponents()[13].getPollData() == 1f;
-// opMode.gamepad1.right_stick_button = controller1.getComponents()[14].getPollData() == 1f;
-//
-// final float hat = controller1.getComponents()[15].getPollData();
-// opMode.gamepad1.dpad_left = hat == .875f || hat == 1f || hat == .125f;
-// opMode.gamepad1.dpad_right = hat == .375f || hat == .5f || hat == .675f;
-// opMode.gamepad1.dpad_up = hat == .125f || hat == .25f || hat == .375f;
-// opMode.gamepad1.dpad_down = hat == .675f || hat == .75f || hat == .875f;
-//
-// opMode.gamepad1.left_stick_x = controller1.getComponent(Identifier.Axis.X).getPollData();
-// opMode.gamepad1.left_stick_y = controller1.getComponent(Identifier.Axis.Y).getPollData() * -1;
-// opMode.gamepad1.right_stick_x = controller1.getComponent(Identifier.Axis.RX).getPollData();
-// opMode.gamepad1.right_stick_y = controller1.getComponent(Identifier.Axis.RY).getPollData() * -1;
-//
-// // TODO fix
-// opMode.gamepad1.left_trigger = controller1.getComponent(Identifier.Axis.Z).getPollData();
-// // opMode.gamepad1.right_trigger = controller1.getComponent(Identifier.Axis.RZ).getPollData();
-	}
-
-	private static void worldUpdate(final double timeStep) {
-		float leftAverage = 0f;
-		for (final SimMotor motor : leftWheels) {
-			leftAverage += motor.getPower();
+			showFrame(reviewFrame);
 		}
-		// leftAverage /= leftWheels.size();
-		float rightAverage = 0f;
-		for (final SimMotor motor : rightWheels) {
-			rightAverage += motor.getPower();
+	}
+
+	private static void tick() {
+		final double scale = timeScale;
+		coverage.forget(history.getFirstFrame());
+		coverage.setFrame(history.getLastFrame() + 1);
+		simulation.step(Double.isInfinite(scale) ? 1d / TARGET_FPS : scale / TARGET_FPS);
+		final MatchClock match = Simulator.match;
+		if (match != null) match.update(simulation);
+		simulation.capture(snapshot);
+		history.record(snapshot);
+		if (recorder != null) {
+			simulation.fillRecord(snapshot, recordRow);
+			recorder.record(recordRow);
 		}
-		// rightAverage /= rightWheels.size();
+	}
+
+	private static void showFrame(final long frame) {
+		if (frame == shownFrame || frame < history.getFirstFrame() || frame > history.getLastFrame()) return;
+
+		history.seek(frame, snapshot);
+		simulation.restore(snapshot);
+		shownFrame = frame;
+	}
+
+	/** Stops the simulation and shows a recorded frame instead. Safe to call from any thread. */
+	public static void seek(final long frame) {
+		replaying = false;
+		reviewFrame = frame;
+	}
+
+	/** Plays the history forward in real time from the frame being reviewed. */
+	public static void replay() {
+		if (reviewFrame >= 0) replaying = true;
+	}
+
+	/** Drops the history and coverage after the frame being reviewed and continues the simulation live from it. */
+	public static void resume() {
+		resumeRequested = true;
+	}
+
+	/** Runs one tick from the frame being shown, dropping any history after it, and pauses on the result. */
+	public static void stepOnce() {
+		stepRequested = true;
+	}
+
+	public static CoverageMap getCoverage() {
+		return coverage;
+	}
+
+	/** Null when no match is running. */
+	public static MatchClock getMatch() {
+		return match;
+	}
 
-		// System.out.println(leftAverage + ", " + rightAverage);
+	/** Starts a match now, stopping the op mode first so every period starts from its init. Null ends the match. */
+	public static void startMatch(final MatchClock clock) {
+		runOnSimulationThread(simulation -> {
+			match = clock;
+			if (clock != null) {
+				simulation.stop();
+				clock.start(simulation);
+			}
+		});
+	}
 
-		// TODO Movement calculations
-		robotRotation += (rightAverage - leftAverage) * 30f * timeStep;
-		while (robotRotation >= 360f)
-			robotRotation -= 360f;
-		while (robotRotation < 0f)
-			robotRotation += 360;
+	public static boolean isLive() {
+		return reviewFrame < 0;
+	}
 
-		final float distance = (float) ((leftAverage + rightAverage) / (leftWheels.size() + rightWheels.size()) * 21.5f * timeStep);
-		robotX += (float) (distance * Math.cos(Math.toRadians(robotRotation)));
-		robotY -= (float) (distance * Math.sin(Math.toRadians(robotRotation)));
+	public static long getFirstFrame() {
+		return history == null ? 0 : history.getFirstFrame();
+	}
+
+	public static long getLastFrame() {
+		return history == null ? 0 : history.getLastFrame();
+	}
+
+	public static long getShownFrame() {
+		return reviewFrame < 0 ? getLastFrame() : reviewFrame;
+	}
+
+	public static double getRenderRate() {
+		return renderRate;
+	}
+
+	public static void setRenderRate(final double rate) {
+		if (rate <= 0) throw new IllegalArgumentException("rate must be positive");
+		renderRate = rate;
+	}
+
+	public static double getTimeScale() {
+		return timeScale;
+	}
 
+	/**
+	 * Simulated seconds per real second; ticks stay at {@link #getTargetFPS()} per real second and grow or shrink.
+	 * Infinity runs ticks of {@code 1 / getTargetFPS()} seconds back to back, as fast as the simulation allows.
+	 */
+	public static void setTimeScale(final double scale) {
+		if (!(scale > 0)) throw new IllegalArgumentException("scale must be positive");
+		timeScale = scale;
+	}
+
+	public static double getFixedLoopRate() {
+		return fixedLoopRate;
+	}
+
+	public static void setFixedLoopRate(final double rate) {
+		final LoopTiming timing = LoopTiming.fixed(rate);
+		fixedLoopRate = rate;
+		runOnSimulationThread(simulation -> simulation.setLoopTiming(timing));
+	}
+
+	/** Everything the simulation thread allocated per tick over the last second, history and recording included. */
+	public static long getAllocatedBytesPerTick() {
+		return allocatedBytesPerTick;
+	}
+
+	/** What one phase allocated per tick over the last second, or per frame for {@link Phase#RENDER}. */
+	public static long getPhaseBytesPerTick(final Phase phase) {
+		return phaseBytesPerTick[phase.ordinal()];
+	}
+
+	/** Makes a change to the simulation from another thread; it is applied before the next tick. */
+	public static void runOnSimulationThread(final Consumer<Simulation> change) {
+		pending.add(change);
+	}
+
+	public static int getTargetFPS() {
+		return TARGET_FPS;
 	}
 
 	public static void setCurrentFPS(final float fps) {
@@ -190,54 +428,45 @@ public class Simulator {
 		return currentFPS;
 	}
 
-	public static State getState() {
-		return state;
+	/** Null when the gamepads come from somewhere other than local controllers. */
+	public static ControllerDiscovery getControllerDiscovery() {
+		return controllers;
 	}
 
-	public static boolean init() {
-		if (state == State.DISABLED) {
-			state = State.INIT;
-			opMode.init();
-			return true;
-		}
+	public static Simulation getSimulation() {
+		return simulation;
+	}
 
-		return false;
+	public static Simulation.State getState() {
+		return simulation == null ? Simulation.State.DISABLED : simulation.getState();
 	}
 
-	public static boolean start() {
-		if (state == State.INIT) {
-			state = State.ENABLED;
-			opMode.start();
-			return true;
-		}
+	public static boolean init() {
+		return simulation.init();
+	}
 
-		return false;
+	public static boolean start() {
+		return simulation.start();
 	}
 
 	public static boolean stop() {
-		if (state != State.DISABLED) {
-			state = State.DISABLED;
-			opMode.stop();
-			return true;
-		}
-
-		return false;
+		return simulation.stop();
 	}
 
 	public static ArrayList<RobotComponent> getRobot() {
-		return robot;
+		return simulation == null ? NO_ROBOT : simulation.getRobot();
 	}
 
 	public static float getRobotX() {
-		return robotX;
+		return simulation == null ? 72 : simulation.getRobotX();
 	}
 
 	public static float getRobotY() {
-		return robotY;
+		return simulation == null ? 72 : simulation.getRobotY();
 	}
 
 	public static float getRobotRotation() {
-		return robotRotation;
+		return simulation == null ? 90 : simulation.getRobotRotation();
 	}
 
 }
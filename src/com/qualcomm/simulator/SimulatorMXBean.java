@@ -0,0 +1,54 @@
+package com.qualcomm.simulator;
+
+/**
+ * The running simulator as seen from JConsole or any other JMX client, registered as
+ * {@code com.qualcomm.simulator:type=Simulator}. Times are nanoseconds spent in the last tick.
+ */
+public interface SimulatorMXBean {
+
+	public float getTickRate();
+	public long getTick();
+	public double getClock();
+	public String getState();
+
+	public float getRobotX();
+	public float getRobotY();
+	public float getRobotRotation();
+
+	public long getPhysicsNanos();
+	public long getInputNanos();
+	public long getOpModeNanos();
+	public long getRenderNanos();
+	public long getAllocatedBytesPerTick();
+
+	public double getLoopRate();
+	public double getBatteryVoltage();
+
+	public double getPhysicsRate();
+	public void setPhysicsRate(double rate);
+
+	/** The op mode's loop rate if it is fixed, otherwise NaN. Setting it replaces any other loop timing. */
+	public double getFixedLoopRate();
+	public void setFixedLoopRate(double rate);
+
+	public double getRenderRate();
+	public void setRenderRate(double rate);
+
+	/** Simulated seconds per real second. */
+	public double getTimeScale();
+	public void setTimeScale(double scale);
+
+	public float getTurnRate();
+	public void setTurnRate(float degreesPerSecond);
+
+	public float getDriveSpeed();
+	public void setDriveSpeed(float inchesPerSecond);
+
+	public double getStateOfCharge();
+	public void setStateOfCharge(double stateOfCharge);
+
+	public String getControllers();
+	public void swapGamepads();
+	public void rescanControllers();
+
+}
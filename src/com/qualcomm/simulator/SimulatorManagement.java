@@ -0,0 +1,188 @@
+package com.qualcomm.simulator;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The {@link SimulatorMXBean} for {@link Simulator}'s simulation. Reads are taken as they are, so a value may be a
+ * tick old; writes to the simulation are queued and applied by the simulation thread between ticks.
+ */
+class SimulatorManagement implements SimulatorMXBean {
+
+	static final String OBJECT_NAME = "com.qualcomm.simulator:type=Simulator";
+
+	private final float[] pose = new float[3];
+
+	static void register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new SimulatorManagement(), new ObjectName(OBJECT_NAME));
+		} catch (final JMException e) {
+			System.err.println("Can't register " + OBJECT_NAME + ": " + e);
+		}
+	}
+
+	@Override
+	public float getTickRate() {
+		return Simulator.getCurrentFPS();
+	}
+
+	@Override
+	public long getTick() {
+		return Simulator.getSimulation().getTick();
+	}
+
+	@Override
+	public double getClock() {
+		return Simulator.getSimulation().getClock();
+	}
+
+	@Override
+	public String getState() {
+		return Simulator.getState().name();
+	}
+
+	@Override
+	public synchronized float getRobotX() {
+		Simulator.getSimulation().readPose(pose);
+		return pose[0];
+	}
+
+	@Override
+	public synchronized float getRobotY() {
+		Simulator.getSimulation().readPose(pose);
+		return pose[1];
+	}
+
+	@Override
+	public synchronized float getRobotRotation() {
+		Simulator.getSimulation().readPose(pose);
+		return pose[2];
+	}
+
+	@Override
+	public long getPhysicsNanos() {
+		return Simulator.getSimulation().getPhaseNanos(Phase.PHYSICS);
+	}
+
+	@Override
+	public long getInputNanos() {
+		return Simulator.getSimulation().getPhaseNanos(Phase.INPUT);
+	}
+
+	@Override
+	public long getOpModeNanos() {
+		return Simulator.getSimulation().getPhaseNanos(Phase.OP_MODE);
+	}
+
+	@Override
+	public long getRenderNanos() {
+		return Simulator.getSimulation().getPhaseNanos(Phase.RENDER);
+	}
+
+	@Override
+	public long getAllocatedBytesPerTick() {
+		return Simulator.getAllocatedBytesPerTick();
+	}
+
+	@Override
+	public double getLoopRate() {
+		return Simulator.getSimulation().getLoopRate();
+	}
+
+	@Override
+	public double getBatteryVoltage() {
+		return Simulator.getSimulation().getElectrics().getVoltage();
+	}
+
+	@Override
+	public double getPhysicsRate() {
+		return Simulator.getSimulation().getPhysicsRate();
+	}
+
+	@Override
+	public void setPhysicsRate(final double rate) {
+		if (rate <= 0) throw new IllegalArgumentException("rate must be positive");
+		Simulator.runOnSimulationThread(simulation -> simulation.setPhysicsRate(rate));
+	}
+
+	@Override
+	public double getFixedLoopRate() {
+		return Simulator.getFixedLoopRate();
+	}
+
+	@Override
+	public void setFixedLoopRate(final double rate) {
+		Simulator.setFixedLoopRate(rate);
+	}
+
+	@Override
+	public double getRenderRate() {
+		return Simulator.getRenderRate();
+	}
+
+	@Override
+	public void setRenderRate(final double rate) {
+		Simulator.setRenderRate(rate);
+	}
+
+	@Override
+	public double getTimeScale() {
+		return Simulator.getTimeScale();
+	}
+
+	@Override
+	public void setTimeScale(final double scale) {
+		Simulator.setTimeScale(scale);
+	}
+
+	@Override
+	public float getTurnRate() {
+		return Simulator.getSimulation().getTurnRate();
+	}
+
+	@Override
+	public void setTurnRate(final float degreesPerSecond) {
+		Simulator.runOnSimulationThread(simulation -> simulation.setTurnRate(degreesPerSecond));
+	}
+
+	@Override
+	public float getDriveSpeed() {
+		return Simulator.getSimulation().getDriveSpeed();
+	}
+
+	@Override
+	public void setDriveSpeed(final float inchesPerSecond) {
+		Simulator.runOnSimulationThread(simulation -> simulation.setDriveSpeed(inchesPerSecond));
+	}
+
+	@Override
+	public double getStateOfCharge() {
+		return Simulator.getSimulation().getElectrics().getStateOfCharge();
+	}
+
+	@Override
+	public void setStateOfCharge(final double stateOfCharge) {
+		Simulator.runOnSimulationThread(simulation -> simulation.getElectrics().setStateOfCharge(stateOfCharge));
+	}
+
+	@Override
+	public String getControllers() {
+		final ControllerDiscovery controllers = Simulator.getControllerDiscovery();
+		return controllers == null ? "not using local controllers" : controllers.getBindings();
+	}
+
+	@Override
+	public void swapGamepads() {
+		final ControllerDiscovery controllers = Simulator.getControllerDiscovery();
+		if (controllers != null) controllers.swap();
+	}
+
+	@Override
+	public void rescanControllers() {
+		final ControllerDiscovery controllers = Simulator.getControllerDiscovery();
+		if (controllers != null) controllers.rescan();
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.qualcomm.simulator;
+
+/**
+ * A random number generator whose whole state is one {@code long}, so a {@link WorldSnapshot} can capture it and a
+ * restored run draws exactly the numbers the original would have. Steele, Lea and Flood's SplitMix64.
+ */
+final class SplitMix64 {
+
+	private long state;
+
+	SplitMix64(final long seed) {
+		state = seed;
+	}
+
+	long getState() {
+		return state;
+	}
+
+	void setState(final long state) {
+		this.state = state;
+	}
+
+	long nextLong() {
+		long z = state += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/** Uniform in {@code [0, 1)}. */
+	float nextFloat() {
+		return (nextLong() >>> 40) * 0x1.0p-24f;
+	}
+
+	/** Uniform in {@code [0, 1)}. */
+	double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/** Standard normal, by Box-Muller. The second value of each pair is dropped so there is no state to snapshot. */
+	double nextGaussian() {
+		final double u = 1 - nextDouble(), v = nextDouble();
+		return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+	}
+
+}
@@ -0,0 +1,292 @@
+package com.qualcomm.simulator;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.qualcomm.ftcrobotcontroller.opmodes.ExampleAutonomous;
+
+/**
+ * Searches for the parameters that give a headless run the lowest cost. {@link Setup} turns one candidate's
+ * parameters into a ready simulation, which can mean op mode fields such as PID gains or stick scaling, or physics
+ * constants such as {@link Simulation#setTurnRate}; {@link Cost} scores the run as it goes. Candidates run on the
+ * common fork-join pool across every core, or on a pool of {@link #setThreads} threads that each search shuts down.
+ *
+ * {@link #gridSearch} runs every combination to the end. {@link #successiveHalving} runs many random candidates for
+ * a short time, keeps the best fraction, runs those for longer, and so on; bad candidates are dropped after a small
+ * part of a full run. Either way a run whose cost becomes infinite is stopped at once.
+ */
+public class Tuner {
+
+	public interface Setup {
+		public Simulation create(double[] parameters);
+	}
+
+	public interface Cost {
+		/**
+		 * Called after every tick with the cost so far, starting from 0, and returns the new cost. Costs at the same
+		 * simulated time are compared, so an accumulated error works as well as a final one.
+		 */
+		public double update(Simulation simulation, double cost);
+	}
+
+	public static class Trial {
+		public final double[] parameters;
+		public double cost = 0, time = 0;
+
+		Trial(final double[] parameters) {
+			this.parameters = parameters;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("cost %10.4f after %5.2fs  %s", cost, time, Arrays.toString(parameters));
+		}
+	}
+
+	private static final Comparator<Trial> BY_COST = Comparator.comparingDouble(trial -> trial.cost);
+
+	private final Setup setup;
+	private final Cost cost;
+	private final ArrayList<String> names = new ArrayList<String>();
+	private final ArrayList<double[]> ranges = new ArrayList<double[]>();
+	private double duration = 10, minDuration = 1, timeStep = 1d / 60;
+	// 0 for the common pool
+	private int threads = 0;
+
+	public Tuner(final Setup setup, final Cost cost) {
+		this.setup = setup;
+		this.cost = cost;
+	}
+
+	public Tuner addParameter(final String name, final double min, final double max) {
+		if (max < min) throw new IllegalArgumentException(String.format("%s: max %f is below min %f", name, max, min));
+
+		names.add(name);
+		ranges.add(new double[] {min, max});
+		return this;
+	}
+
+	public List<String> getParameterNames() {
+		return names;
+	}
+
+	public Tuner setDuration(final double seconds) {
+		duration = seconds;
+		return this;
+	}
+
+	/** The shortest run {@link #successiveHalving} judges a candidate on; too short and the ranking is noise. */
+	public Tuner setMinDuration(final double seconds) {
+		minDuration = seconds;
+		return this;
+	}
+
+	public Tuner setTimeStep(final double seconds) {
+		timeStep = seconds;
+		return this;
+	}
+
+	public Tuner setThreads(final int threads) {
+		if (threads < 0) throw new IllegalArgumentException("threads must not be negative");
+
+		this.threads = threads;
+		return this;
+	}
+
+	/** Tries {@code steps} evenly spaced values of every parameter in every combination. Best trial first. */
+	public Trial[] gridSearch(final int steps) throws InterruptedException {
+		if (steps < 1) throw new IllegalArgumentException("steps must be at least 1");
+
+		int combinations = 1;
+		for (int i = 0; i < names.size(); i++) {
+			combinations = Math.multiplyExact(combinations, steps);
+		}
+
+		final ArrayList<Run> runs = new ArrayList<Run>(combinations);
+		for (int combination = 0; combination < combinations; combination++) {
+			final double[] parameters = new double[names.size()];
+			for (int i = 0, rest = combination; i < parameters.length; i++, rest /= steps) {
+				final double[] range = ranges.get(i);
+				parameters[i] = steps == 1 ? (range[0] + range[1]) / 2 : range[0] + (range[1] - range[0]) * (rest % steps) / (steps - 1);
+			}
+			runs.add(new Run(parameters));
+		}
+
+		final ForkJoinPool pool = createPool();
+		try {
+			advance(pool, runs, duration);
+		} finally {
+			pool.shutdown();
+		}
+		return sorted(runs);
+	}
+
+	/**
+	 * Draws {@code candidates} parameter sets uniformly from {@code seed}, then repeatedly runs the survivors further
+	 * and keeps the best {@code 1 / eta} of them, so the last round runs a few candidates for the full duration. The
+	 * first round is never shorter than {@link #setMinDuration}.
+	 * Best trial first; the dropped ones follow with the cost they had when they were dropped.
+	 */
+	public Trial[] successiveHalving(final int candidates, final int eta, final long seed) throws InterruptedException {
+		if (candidates < 1 || eta < 2) throw new IllegalArgumentException("need at least one candidate and eta of at least 2");
+
+		final Random random = new Random(seed);
+		ArrayList<Run> survivors = new ArrayList<Run>(candidates);
+		for (int c = 0; c < candidates; c++) {
+			final double[] parameters = new double[names.size()];
+			for (int i = 0; i < parameters.length; i++) {
+				final double[] range = ranges.get(i);
+				parameters[i] = range[0] + (range[1] - range[0]) * random.nextDouble();
+			}
+			survivors.add(new Run(parameters));
+		}
+
+		final ArrayList<Run> dropped = new ArrayList<Run>();
+		int rounds = 1;
+		for (long left = candidates; left > eta && duration / Math.pow(eta, rounds) >= minDuration; left /= eta) {
+			rounds++;
+		}
+
+		final ForkJoinPool pool = createPool();
+		try {
+			for (int round = rounds - 1; round >= 0; round--) {
+				advance(pool, survivors, duration / Math.pow(eta, round));
+				survivors.sort((a, b) -> BY_COST.compare(a.trial, b.trial));
+
+				final int keep = round == 0 ? survivors.size() : Math.max(1, survivors.size() / eta);
+				final ArrayList<Run> next = new ArrayList<Run>(survivors.subList(0, keep));
+				for (final Run run : survivors.subList(keep, survivors.size())) {
+					run.simulation = null;
+					dropped.add(run);
+				}
+				survivors = next;
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		survivors.addAll(dropped);
+		final Trial[] trials = new Trial[survivors.size()];
+		for (int i = 0; i < trials.length; i++) {
+			trials[i] = survivors.get(i).trial;
+		}
+		return trials;
+	}
+
+	// Shutting down the common pool does nothing, so callers shut down whichever they get
+	private ForkJoinPool createPool() {
+		return threads == 0 ? ForkJoinPool.commonPool() : new ForkJoinPool(threads);
+	}
+
+	private void advance(final ForkJoinPool pool, final ArrayList<Run> runs, final double until) throws InterruptedException {
+		final ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>(runs.size());
+		for (final Run run : runs) {
+			tasks.add(() -> {
+				run.advance(until);
+				return null;
+			});
+		}
+
+		for (final Future<Void> future : pool.invokeAll(tasks)) {
+			try {
+				future.get();
+			} catch (final ExecutionException e) {
+				throw new IllegalStateException("tuning run failed", e.getCause());
+			}
+		}
+	}
+
+	private static Trial[] sorted(final ArrayList<Run> runs) {
+		final Trial[] trials = new Trial[runs.size()];
+		for (int i = 0; i < trials.length; i++) {
+			trials[i] = runs.get(i).trial;
+		}
+		Arrays.sort(trials, BY_COST);
+		return trials;
+	}
+
+	private class Run {
+
+		final Trial trial;
+		Simulation simulation;
+		long steps = 0;
+
+		Run(final double[] parameters) {
+			trial = new Trial(parameters);
+		}
+
+		void advance(final double until) {
+			if (simulation == null) {
+				simulation = setup.create(trial.parameters);
+				simulation.init();
+			}
+
+			final long target = Math.round(until / timeStep);
+			while (steps < target && trial.cost != Double.POSITIVE_INFINITY) {
+				simulation.step(timeStep);
+				trial.cost = cost.update(simulation, trial.cost);
+				steps++;
+			}
+			trial.time = steps * timeStep;
+		}
+
+	}
+
+	/**
+	 * Fits the drive model's turn rate and drive speed so ExampleAutonomous follows a golden trajectory, such as one
+	 * logged from the real robot in the {@link GoldenTrajectory} format. Without a file it fits to a run with
+	 * known constants, to show the search recovers them.
+	 */
+	public static void main(final String[] args) throws IOException, InterruptedException {
+		final ArrayList<double[]> reference;
+		if (args.length > 0) {
+			reference = GoldenTrajectory.Trajectory.read(Paths.get(args[0])).rows;
+		} else {
+			// Stands in for a robot whose drive differs from the defaults
+			reference = new ArrayList<double[]>();
+			final Simulation simulation = createExample(36, 18);
+			simulation.init();
+			for (int i = 0; i < 8 * 60; i++) {
+				simulation.step(1d / 60);
+				reference.add(new double[] {simulation.getClock(), simulation.getRobotX(), simulation.getRobotY()});
+			}
+			simulation.stop();
+		}
+
+		final double referenceStep = reference.size() > 1 ? reference.get(1)[0] - reference.get(0)[0] : 1d / 60;
+		final Tuner tuner = new Tuner(parameters -> createExample(parameters[0], parameters[1]), (simulation, cost) -> {
+			// Squared distance from the reference at the same tick
+			final int row = (int) simulation.getTick() - 1;
+			if (row >= reference.size()) return cost;
+			final double[] expected = reference.get(row);
+			final double dx = simulation.getRobotX() - expected[1], dy = simulation.getRobotY() - expected[2];
+			return cost + dx * dx + dy * dy;
+		}).addParameter("turnRate", 10, 60).addParameter("driveSpeed", 10, 40).setDuration(reference.size() * referenceStep).setMinDuration(2).setTimeStep(referenceStep);
+
+		long start = System.nanoTime();
+		final Trial[] grid = tuner.gridSearch(12);
+		System.out.println(String.format("grid search: %d trials in %.0f ms, best %s", grid.length, (System.nanoTime() - start) / 1e6, grid[0]));
+
+		start = System.nanoTime();
+		final Trial[] halving = tuner.successiveHalving(243, 3, 4654);
+		System.out.println(String.format("successive halving: %d trials in %.0f ms, best %s", halving.length, (System.nanoTime() - start) / 1e6, halving[0]));
+	}
+
+	private static Simulation createExample(final double turnRate, final double driveSpeed) {
+		final Simulation simulation = new Simulation(new ExampleAutonomous());
+		simulation.setRobotPose(72, 72, 90);
+		simulation.setTurnRate((float) turnRate);
+		simulation.setDriveSpeed((float) driveSpeed);
+		return simulation;
+	}
+
+}
@@ -1,18 +1,31 @@
 package com.qualcomm.simulator;
 
+import java.awt.AlphaComposite;
 import java.awt.BorderLayout;
+import java.awt.Color;
 import java.awt.Component;
+import java.awt.FlowLayout;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
 
 import javax.swing.DefaultListCellRenderer;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JPanel;
+import javax.swing.JSlider;
 import javax.swing.JSplitPane;
+import javax.swing.Timer;
 
 public class Window extends JFrame {
 
@@ -40,6 +53,14 @@ public class Window extends JFrame {
 		});
 	}
 
+	private final JSlider timeline = new JSlider(0, 0, 0);
+	private final JLabel timelineLabel = new JLabel();
+	private final JLabel matchLabel = new JLabel();
+	private boolean updatingTimeline = false;
+
+	private static final String[] SPEED_NAMES = {"0.1x", "0.25x", "0.5x", "1x", "2x", "4x", "8x", "Max"};
+	private static final double[] SPEEDS = {0.1, 0.25, 0.5, 1, 2, 4, 8, Double.POSITIVE_INFINITY};
+
 	public Window() {
 		super("Team4654 Robot Simulator");
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -52,6 +73,7 @@ public class Window extends JFrame {
 
 		final JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, world, components);
 		add(splitPane);
+		add(createTimeline(), BorderLayout.SOUTH);
 
 		setSize(640, 480);
 		setExtendedState(MAXIMIZED_BOTH);
@@ -61,24 +83,265 @@ public class Window extends JFrame {
 		setVisible(true);
 	}
 
+	private JPanel createTimeline() {
+		final JButton pause = new JButton("Pause");
+		pause.addActionListener(e -> Simulator.seek(Simulator.getLastFrame()));
+		final JButton back = new JButton("<");
+		back.addActionListener(e -> Simulator.seek(Math.max(Simulator.getFirstFrame(), Simulator.getShownFrame() - 1)));
+		final JButton forward = new JButton(">");
+		forward.addActionListener(e -> Simulator.seek(Math.min(Simulator.getLastFrame(), Simulator.getShownFrame() + 1)));
+		final JButton replay = new JButton("Replay");
+		replay.addActionListener(e -> Simulator.replay());
+		final JButton live = new JButton("Resume");
+		live.addActionListener(e -> Simulator.resume());
+		final JButton step = new JButton("Step");
+		step.setToolTipText("Pause and run one tick");
+		step.addActionListener(e -> Simulator.stepOnce());
+
+		final JComboBox<String> speed = new JComboBox<String>(SPEED_NAMES);
+		speed.setSelectedIndex(3);
+		speed.addActionListener(e -> Simulator.setTimeScale(SPEEDS[speed.getSelectedIndex()]));
+		final JComboBox<String> match = new JComboBox<String>(new String[] {"No match", "Full match", "Autonomous", "Teleop"});
+		match.addActionListener(e -> Simulator.startMatch(createMatch(match.getSelectedIndex())));
+		final JCheckBox heatmap = new JCheckBox("Heatmap");
+		heatmap.setToolTipText("Where the robot has spent this session");
+		heatmap.addActionListener(e -> world.setHeatmapVisible(heatmap.isSelected()));
+		final JButton controllers = new JButton("Controllers");
+		controllers.setToolTipText("Look for controllers plugged in since the last scan");
+		controllers.addActionListener(e -> {
+			final ControllerDiscovery discovery = Simulator.getControllerDiscovery();
+			if (discovery != null) discovery.rescan();
+		});
+
+		timeline.addChangeListener(e -> {
+			if (!updatingTimeline) Simulator.seek(timeline.getValue() + Simulator.getFirstFrame());
+		});
+
+		final JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT));
+		buttons.add(pause);
+		buttons.add(back);
+		buttons.add(forward);
+		buttons.add(replay);
+		buttons.add(live);
+		buttons.add(step);
+		buttons.add(speed);
+		buttons.add(match);
+		buttons.add(heatmap);
+		buttons.add(controllers);
+		buttons.add(matchLabel);
+		buttons.add(timelineLabel);
+
+		final JPanel panel = new JPanel(new BorderLayout());
+		panel.add(buttons, BorderLayout.WEST);
+		panel.add(timeline);
+
+		// The slider and heatmap follow the simulation at a low rate instead of on every tick
+		new Timer(100, e -> updateTimeline()).start();
+		new Timer(500, e -> world.refreshHeatmap()).start();
+		return panel;
+	}
+
+	private static MatchClock createMatch(final int index) {
+		switch (index) {
+			case 1:
+				return MatchClock.full();
+			case 2:
+				return MatchClock.autonomous();
+			case 3:
+				return MatchClock.teleop();
+			default:
+				return null;
+		}
+	}
+
+	private void updateTimeline() {
+		final long first = Simulator.getFirstFrame(), shown = Simulator.getShownFrame();
+
+		updatingTimeline = true;
+		timeline.setMaximum((int) Math.max(0, Simulator.getLastFrame() - first));
+		if (!timeline.getValueIsAdjusting()) timeline.setValue((int) (shown - first));
+		updatingTimeline = false;
+
+		final Simulation simulation = Simulator.getSimulation();
+		final MatchClock match = Simulator.getMatch();
+		if (match == null || simulation == null || !match.isStarted()) {
+			matchLabel.setText("");
+		} else {
+			final double clock = simulation.getClock(), remaining = Math.ceil(match.getRemaining(clock));
+			matchLabel.setText(String.format("%s %d:%02d", match.getPeriod(clock), (int) remaining / 60, (int) remaining % 60));
+		}
+
+		// Ticks cover a varying amount of simulated time, so the position is the shown frame's clock
+		timelineLabel.setText(String.format("%s %.1fs / -%d ticks, loop %.0f Hz, %.0f fps, %d B/tick", Simulator.isLive() ? "Live" : "Review", simulation == null ? 0 : simulation.getClock(), Simulator.getLastFrame() - shown, simulation == null ? 0 : simulation.getLoopRate(), Simulator.getCurrentFPS(), Simulator.getAllocatedBytesPerTick()));
+		timelineLabel.setToolTipText(String.format("Bytes allocated per tick: physics %d, input %d, op mode %d; per frame: render %d", Simulator.getPhaseBytesPerTick(Phase.PHYSICS), Simulator.getPhaseBytesPerTick(Phase.INPUT), Simulator.getPhaseBytesPerTick(Phase.OP_MODE), Simulator.getPhaseBytesPerTick(Phase.RENDER)));
+	}
+
 	public void refreshComponents() {
 		components.setListData(Simulator.getRobot().toArray(new RobotComponent[Simulator.getRobot().size()]));
 // components.setListData(new RobotComponent[] {null, null, null, null});
 	}
 
+	/** Repaints whatever changed in the world since the last call, and nothing if nothing did. Call from the simulation thread. */
+	public void refreshWorld() {
+		world.refresh();
+	}
+
 	private static class World extends JPanel {
 
 		private static final long serialVersionUID = -7276267169741993849L;
+		private static final int SPRITE_SIZE = 18 * RobotComponent.IMAGE_SCALE;
+
+		// The floor, tape, walls and grid, drawn once per size and field
+		private Field layerField;
+		private BufferedImage layer;
+
+		// The robot drawn from its components, redrawn only when one of them changes
+		private final BufferedImage sprite = new BufferedImage(SPRITE_SIZE, SPRITE_SIZE, BufferedImage.TYPE_INT_ARGB_PRE);
+		private long spriteVersion;
+		private boolean spriteDrawn = false;
+
+		private final com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+		private final float[] pose = new float[3];
+		private long shownVersion, shownElements = -1;
+
+		private BufferedImage heatmap;
+		private int[] heatmapPixels;
+		private boolean heatmapVisible = false;
+
+		// Measured by the last paint on the event thread and handed to the simulation from its own thread in refresh
+		private volatile long renderNanos, renderBytes;
+		// The pose the dirty rectangles were worked out for, written by refresh and drawn by paint
+		private final Object shownLock = new Object();
+		private float shownX = Float.NaN, shownY, shownRotation;
+		private Rectangle shownBounds;
+
+		void refresh() {
+			final Simulation simulation = Simulator.getSimulation();
+			if (simulation == null) return;
+
+			simulation.setPhaseNanos(Phase.RENDER, renderNanos);
+			simulation.setPhaseBytes(Phase.RENDER, renderBytes);
+
+			// Elements can be anywhere, so any movement among them repaints the whole field
+			final long elements = simulation.getElements().getVersion();
+			if (elements != shownElements) {
+				shownElements = elements;
+				repaint();
+			}
+
+			simulation.readPose(pose);
+			final long version = getRobotVersion();
+			if (pose[0] == shownX && pose[1] == shownY && pose[2] == shownRotation && version == shownVersion) return;
+
+			synchronized (shownLock) {
+				shownX = pose[0];
+				shownY = pose[1];
+				shownRotation = pose[2];
+			}
+			shownVersion = version;
+			components.repaint();
+
+			// Only the squares the robot left and now covers need repainting; Swing merges the two
+			final float scale = getScale();
+			final int half = (int) Math.ceil(9 * Math.sqrt(2) * scale) + 2;
+			final Rectangle bounds = new Rectangle((int) (getOffsetX(scale) + shownX * scale) - half, (int) (getOffsetY(scale) + shownY * scale) - half, 2 * half, 2 * half);
+			if (shownBounds != null) repaint(shownBounds);
+			repaint(bounds);
+			shownBounds = bounds;
+		}
+
+		void setHeatmapVisible(final boolean visible) {
+			heatmapVisible = visible;
+			refreshHeatmap();
+			repaint();
+		}
+
+		void refreshHeatmap() {
+			if (!heatmapVisible) return;
+
+			final CoverageMap coverage = Simulator.getCoverage();
+			if (heatmap == null) {
+				heatmap = new BufferedImage(coverage.getSize(), coverage.getSize(), BufferedImage.TYPE_INT_ARGB);
+				heatmapPixels = new int[coverage.getSize() * coverage.getSize()];
+			}
+			coverage.paint(heatmap, heatmapPixels);
+			repaint();
+		}
 
 		@Override
 		public void paint(final Graphics gg) {
 			if (!(gg instanceof Graphics2D)) return;
+			final long bytes = allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+			final long start = System.nanoTime();
 			final Graphics2D g = (Graphics2D) gg;
 			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-			final float scale = Math.min(getWidth(), getHeight()) / 144F;
-			final float dx = 0.5F * (getWidth() - 144 * scale);
-			final float dy = 0.5F * (getHeight() - 144 * scale);
+			final float scale = getScale();
+			final float dx = getOffsetX(scale), dy = getOffsetY(scale);
+
+			final Field field = Simulator.getSimulation() == null ? Field.getDefault() : Simulator.getSimulation().getField();
+			if (layer == null || field != layerField || layer.getWidth() != getWidth() || layer.getHeight() != getHeight()) {
+				layer = createLayer(field, scale, dx, dy);
+				layerField = field;
+			}
+			g.drawImage(layer, 0, 0, null);
+			if (heatmapVisible && heatmap != null) g.drawImage(heatmap, (int) dx, (int) dy, Math.round(144 * scale), Math.round(144 * scale), null);
+
+			if (Simulator.getSimulation() != null) {
+				// Read while the simulation moves them; an element a step out of date is not worth a lock
+				final GameElements elements = Simulator.getSimulation().getElements();
+				for (int i = 0; i < elements.getCount(); i++) {
+					final float radius = elements.getRadius(i);
+					final int left = (int) (dx + (elements.getX(i) - radius) * scale), top = (int) (dy + (elements.getY(i) - radius) * scale), size = Math.round(2 * radius * scale);
+					g.setColor(getElementColor(elements.getColor(i)));
+					g.fillOval(left, top, size, size);
+					g.setColor(Color.BLACK);
+					g.drawOval(left, top, size, size);
+				}
+			}
+
+			final long version = getRobotVersion();
+			if (!spriteDrawn || version != spriteVersion) {
+				drawSprite();
+				spriteVersion = version;
+				spriteDrawn = true;
+			}
+
+			// Drawn where refresh last saw it, so the robot stays inside the area refresh asked to repaint
+			final float robotX, robotY, robotRotation;
+			synchronized (shownLock) {
+				robotX = shownX;
+				robotY = shownY;
+				robotRotation = shownRotation;
+			}
+			if (!Float.isNaN(robotX)) {
+				// The robot's pose is the centre of its 18 inch frame
+				final AffineTransform trans = AffineTransform.getTranslateInstance(dx + (robotX - 9f) * scale, dy + (robotY - 9f) * scale);
+				trans.scale(scale / RobotComponent.IMAGE_SCALE, scale / RobotComponent.IMAGE_SCALE);
+				trans.rotate(Math.toRadians(-robotRotation + 90), SPRITE_SIZE / 2f, SPRITE_SIZE / 2f);
+				g.drawImage(sprite, trans, null);
+			}
+
+			renderNanos = System.nanoTime() - start;
+			renderBytes = allocations.getThreadAllocatedBytes(Thread.currentThread().getId()) - bytes;
+		}
+
+		private BufferedImage createLayer(final Field field, final float scale, final float dx, final float dy) {
+			final int width = Math.max(1, getWidth()), height = Math.max(1, getHeight());
+			final GraphicsConfiguration configuration = getGraphicsConfiguration();
+			final BufferedImage layer = configuration == null ? new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB) : configuration.createCompatibleImage(width, height);
+			final Graphics2D g = layer.createGraphics();
+			g.setColor(getBackground());
+			g.fillRect(0, 0, layer.getWidth(), layer.getHeight());
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+			g.drawImage(field.createFloorImage(), (int) dx, (int) dy, Math.round(144 * scale), Math.round(144 * scale), null);
+
+			g.setColor(Color.BLACK);
+			for (int i = 0; i < field.getSegmentCount(); i++) {
+				g.drawLine((int) (dx + scale * field.getSegmentX1(i)), (int) (dy + scale * field.getSegmentY1(i)), (int) (dx + scale * field.getSegmentX2(i)), (int) (dy + scale * field.getSegmentY2(i)));
+			}
 
 			for (int y = 0; y <= 144; y += 24) {
 				g.drawLine((int) dx, (int) (dy + scale * y), (int) (dx + 144 * scale), (int) (dy + scale * y));
@@ -88,8 +351,15 @@ public class Window extends JFrame {
 				g.drawLine((int) (dx + scale * x), (int) dy, (int) (dx + scale * x), (int) (dy + 144 * scale));
 			}
 
-			final BufferedImage robot = new BufferedImage(18 * RobotComponent.IMAGE_SCALE, 18 * RobotComponent.IMAGE_SCALE, BufferedImage.TYPE_INT_ARGB_PRE);
-			final Graphics2D robotG = robot.createGraphics();
+			g.dispose();
+			return layer;
+		}
+
+		private void drawSprite() {
+			final Graphics2D robotG = sprite.createGraphics();
+			robotG.setComposite(AlphaComposite.Clear);
+			robotG.fillRect(0, 0, SPRITE_SIZE, SPRITE_SIZE);
+			robotG.setComposite(AlphaComposite.SrcOver);
 			robotG.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 			for (final RobotComponent c : Simulator.getRobot()) {
 				final AffineTransform trans = AffineTransform.getTranslateInstance((c.getX() + 9f) * RobotComponent.IMAGE_SCALE - c.getImage().getWidth() * 0.5F, (c.getY() + 9f) * RobotComponent.IMAGE_SCALE - c.getImage().getHeight() * 0.5F);
@@ -99,11 +369,43 @@ public class Window extends JFrame {
 
 			robotG.drawLine(6 * RobotComponent.IMAGE_SCALE, 18 * RobotComponent.IMAGE_SCALE, 9 * RobotComponent.IMAGE_SCALE, 0);
 			robotG.drawLine(13 * RobotComponent.IMAGE_SCALE, 18 * RobotComponent.IMAGE_SCALE, 9 * RobotComponent.IMAGE_SCALE, 0);
+			robotG.dispose();
+		}
+
+		// Element colours are few, so each is made once rather than on every paint
+		private int[] colorKeys = new int[0];
+		private Color[] colors = new Color[0];
+
+		private Color getElementColor(final int argb) {
+			for (int i = 0; i < colorKeys.length; i++) {
+				if (colorKeys[i] == argb) return colors[i];
+			}
+
+			colorKeys = Arrays.copyOf(colorKeys, colorKeys.length + 1);
+			colors = Arrays.copyOf(colors, colors.length + 1);
+			colorKeys[colorKeys.length - 1] = argb;
+			colors[colors.length - 1] = new Color(argb, true);
+			return colors[colors.length - 1];
+		}
+
+		private static long getRobotVersion() {
+			long version = 17;
+			for (final RobotComponent c : Simulator.getRobot()) {
+				version = version * 31 + c.getVersion();
+			}
+			return version;
+		}
+
+		private float getScale() {
+			return Math.min(getWidth(), getHeight()) / 144F;
+		}
+
+		private float getOffsetX(final float scale) {
+			return 0.5F * (getWidth() - 144 * scale);
+		}
 
-			final AffineTransform trans = AffineTransform.getTranslateInstance(dx + Simulator.getRobotX() * scale, dy + Simulator.getRobotY() * scale);
-			trans.scale(scale / RobotComponent.IMAGE_SCALE, scale / RobotComponent.IMAGE_SCALE);
-			trans.rotate(Math.toRadians(-Simulator.getRobotRotation() + 90), robot.getWidth() / 2f, robot.getHeight() / 2f);
-			g.drawImage(robot, trans, null);
+		private float getOffsetY(final float scale) {
+			return 0.5F * (getHeight() - 144 * scale);
 		}
 
 	}
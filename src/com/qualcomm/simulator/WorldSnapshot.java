@@ -0,0 +1,126 @@
+package com.qualcomm.simulator;
+
+import java.nio.ByteBuffer;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+/**
+ * The complete state of a {@link Simulation} packed into one {@code double[]}: pose, op-mode time and state, battery
+ * charge, the physics and loop clocks, the wheel-slip generator, both gamepads, every motor and servo, every game
+ * element, and every set of odometry pods. Snapshots are sized for a particular robot by
+ * {@link Simulation#createSnapshot()} and are meant to be reused, so capturing and restoring never allocates.
+ */
+public class WorldSnapshot {
+
+	static final int TICK = 0, TIME = 1, STATE = 2, ROBOT_X = 3, ROBOT_Y = 4, ROBOT_ROTATION = 5, BATTERY_CHARGE = 6;
+	static final int CLOCK = 7, PENDING_TIME = 8, NEXT_LOOP = 9, LAST_LOOP = 10, LOOPS = 11;
+	// A generator's state, as a long in two slots
+	static final int SLIP_RANDOM = 12, RANDOM_SIZE = 2;
+	static final int GAMEPAD_SIZE = 7;
+	static final String[] GAMEPAD_SLOTS = {"left_stick_x", "left_stick_y", "right_stick_x", "right_stick_y", "left_trigger", "right_trigger", "buttons"};
+	static final int GAMEPAD1 = SLIP_RANDOM + RANDOM_SIZE, GAMEPAD2 = GAMEPAD1 + GAMEPAD_SIZE;
+	static final int HEADER_SIZE = GAMEPAD2 + GAMEPAD_SIZE;
+	static final int MOTOR_SIZE = 10;
+	static final int SERVO_SIZE = 5;
+	static final int ELEMENT_SIZE = 5;
+	// Per set of pods, followed by each pod's travel
+	static final int ODOMETRY_SIZE = 7;
+
+	final double[] data;
+	private final int motorCount, servoCount, elementCount, odometrySize;
+
+	/** {@code odometrySize} is the slots all the sets of pods take together. */
+	WorldSnapshot(final int motorCount, final int servoCount, final int elementCount, final int odometrySize) {
+		this.motorCount = motorCount;
+		this.servoCount = servoCount;
+		this.elementCount = elementCount;
+		this.odometrySize = odometrySize;
+
+		data = new double[HEADER_SIZE + motorCount * MOTOR_SIZE + servoCount * SERVO_SIZE + elementCount * ELEMENT_SIZE + odometrySize];
+	}
+
+	public void copy(final WorldSnapshot snapshot) {
+		snapshot.checkLayout(motorCount, servoCount, elementCount, odometrySize);
+		System.arraycopy(snapshot.data, 0, data, 0, data.length);
+	}
+
+	public int size() {
+		return data.length;
+	}
+
+	public long getTick() {
+		return (long) data[TICK];
+	}
+
+	public double getTime() {
+		return data[TIME];
+	}
+
+	public float getRobotX() {
+		return (float) data[ROBOT_X];
+	}
+
+	public float getRobotY() {
+		return (float) data[ROBOT_Y];
+	}
+
+	public float getRobotRotation() {
+		return (float) data[ROBOT_ROTATION];
+	}
+
+	/** Writes the snapshot as {@code 8 * size()} bytes, for restarting a run from a file or another process. */
+	public void write(final ByteBuffer buffer) {
+		for (final double value : data) {
+			buffer.putDouble(value);
+		}
+	}
+
+	public void read(final ByteBuffer buffer) {
+		for (int i = 0; i < data.length; i++) {
+			data[i] = buffer.getDouble();
+		}
+	}
+
+	void checkLayout(final int motorCount, final int servoCount, final int elementCount, final int odometrySize) {
+		if (this.motorCount != motorCount || this.servoCount != servoCount || this.elementCount != elementCount || this.odometrySize != odometrySize) {
+			throw new IllegalArgumentException(String.format("snapshot holds %d motors, %d servos, %d elements and %d odometry slots, simulation has %d, %d, %d and %d", this.motorCount, this.servoCount, this.elementCount, this.odometrySize, motorCount, servoCount, elementCount, odometrySize));
+		}
+	}
+
+	// Halves, since a double can't hold every long
+	static void writeLong(final long value, final double[] data, final int offset) {
+		data[offset] = (int) (value >>> 32);
+		data[offset + 1] = (int) value;
+	}
+
+	static long readLong(final double[] data, final int offset) {
+		return (long) data[offset] << 32 | (long) data[offset + 1] & 0xFFFFFFFFL;
+	}
+
+	static void writeGamepad(final Gamepad gamepad, final double[] data, final int offset) {
+		if (gamepad == null) return;
+
+		data[offset] = gamepad.left_stick_x;
+		data[offset + 1] = gamepad.left_stick_y;
+		data[offset + 2] = gamepad.right_stick_x;
+		data[offset + 3] = gamepad.right_stick_y;
+		data[offset + 4] = gamepad.left_trigger;
+		data[offset + 5] = gamepad.right_trigger;
+
+		data[offset + 6] = gamepad.getButtons();
+	}
+
+	static void readGamepad(final Gamepad gamepad, final double[] data, final int offset) {
+		if (gamepad == null) return;
+
+		gamepad.left_stick_x = (float) data[offset];
+		gamepad.left_stick_y = (float) data[offset + 1];
+		gamepad.right_stick_x = (float) data[offset + 2];
+		gamepad.right_stick_y = (float) data[offset + 3];
+		gamepad.left_trigger = (float) data[offset + 4];
+		gamepad.right_trigger = (float) data[offset + 5];
+
+		gamepad.setButtons((int) data[offset + 6]);
+	}
+
+}
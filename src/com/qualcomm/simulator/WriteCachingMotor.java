@@ -0,0 +1,199 @@
+package com.qualcomm.simulator;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/**
+ * Wraps a {@link DcMotor} and drops commands that would not change what the device is already doing. Power writes
+ * within {@code tolerance} of the last value actually sent are suppressed; every other setter is suppressed only when
+ * it repeats the last sent value exactly. Zero and full power either way are always sent unless they were exactly the
+ * last power sent, so neither a stop nor the end of a ramp is swallowed by the tolerance.
+ */
+public class WriteCachingMotor implements DcMotor {
+
+	public static final double DEFAULT_TOLERANCE = 0.005;
+
+	private final DcMotor motor;
+	private final double tolerance;
+
+	private boolean powerSent = false;
+	private double lastPower;
+	private int lastTargetPosition;
+	private boolean targetPositionSent = false;
+	private int lastMaxSpeed;
+	private boolean maxSpeedSent = false;
+	private RunMode lastMode;
+	private ZeroPowerBehavior lastZeroPowerBehavior;
+	private Direction lastDirection;
+
+	private long issued, suppressed;
+
+	public WriteCachingMotor(final DcMotor motor) {
+		this(motor, DEFAULT_TOLERANCE);
+	}
+
+	public WriteCachingMotor(final DcMotor motor, final double tolerance) {
+		if (tolerance < 0) throw new IllegalArgumentException("tolerance cannot be negative");
+
+		this.motor = motor;
+		this.tolerance = tolerance;
+	}
+
+	public DcMotor getMotor() {
+		return motor;
+	}
+
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	public long getIssuedCount() {
+		return issued;
+	}
+
+	public long getSuppressedCount() {
+		return suppressed;
+	}
+
+	/** Forgets what was last sent, so the next write of every kind reaches the device. */
+	public void invalidate() {
+		powerSent = false;
+		targetPositionSent = false;
+		maxSpeedSent = false;
+		lastMode = null;
+		lastZeroPowerBehavior = null;
+		lastDirection = null;
+	}
+
+	public void resetCounts() {
+		issued = 0;
+		suppressed = 0;
+	}
+
+	@Override
+	public String toString() {
+		return motor.toString();
+	}
+
+	@Override
+	public void setPower(final double power) {
+		if (powerSent && (power == 0 || Math.abs(power) >= 1 ? power == lastPower : Math.abs(power - lastPower) <= tolerance)) {
+			suppressed++;
+			return;
+		}
+
+		issued++;
+		powerSent = true;
+		lastPower = power;
+		motor.setPower(power);
+	}
+
+	@Override
+	public void setTargetPosition(final int position) {
+		if (targetPositionSent && position == lastTargetPosition) {
+			suppressed++;
+			return;
+		}
+
+		issued++;
+		targetPositionSent = true;
+		lastTargetPosition = position;
+		motor.setTargetPosition(position);
+	}
+
+	@Override
+	public void setMaxSpeed(final int encoderTicksPerSecond) {
+		if (maxSpeedSent && encoderTicksPerSecond == lastMaxSpeed) {
+			suppressed++;
+			return;
+		}
+
+		issued++;
+		maxSpeedSent = true;
+		lastMaxSpeed = encoderTicksPerSecond;
+		motor.setMaxSpeed(encoderTicksPerSecond);
+	}
+
+	@Override
+	public void setMode(final RunMode mode) {
+		if (mode == lastMode && mode != RunMode.STOP_AND_RESET_ENCODER) {
+			suppressed++;
+			return;
+		}
+
+		issued++;
+		lastMode = mode;
+		// Resetting the encoder also stops the motor, so the power last sent no longer holds
+		if (mode == RunMode.STOP_AND_RESET_ENCODER) powerSent = false;
+		motor.setMode(mode);
+	}
+
+	@Override
+	public void setZeroPowerBehavior(final ZeroPowerBehavior zeroPowerBehavior) {
+		if (zeroPowerBehavior == lastZeroPowerBehavior) {
+			suppressed++;
+			return;
+		}
+
+		issued++;
+		lastZeroPowerBehavior = zeroPowerBehavior;
+		motor.setZeroPowerBehavior(zeroPowerBehavior);
+	}
+
+	@Override
+	public void setDirection(final Direction direction) {
+		if (direction == lastDirection) {
+			suppressed++;
+			return;
+		}
+
+		issued++;
+		lastDirection = direction;
+		motor.setDirection(direction);
+	}
+
+	@Override
+	public int getCurrentPosition() {
+		return motor.getCurrentPosition();
+	}
+
+	@Override
+	public int getMaxSpeed() {
+		return motor.getMaxSpeed();
+	}
+
+	@Override
+	public RunMode getMode() {
+		return motor.getMode();
+	}
+
+	@Override
+	public int getPortNumber() {
+		return motor.getPortNumber();
+	}
+
+	@Override
+	public int getTargetPosition() {
+		return motor.getTargetPosition();
+	}
+
+	@Override
+	public ZeroPowerBehavior getZeroPowerBehavior() {
+		return motor.getZeroPowerBehavior();
+	}
+
+	@Override
+	public boolean isBusy() {
+		return motor.isBusy();
+	}
+
+	@Override
+	public double getPower() {
+		return motor.getPower();
+	}
+
+	@Override
+	public Direction getDirection() {
+		return motor.getDirection();
+	}
+
+}
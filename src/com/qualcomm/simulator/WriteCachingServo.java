@@ -0,0 +1,123 @@
+package com.qualcomm.simulator;
+
+import com.qualcomm.robotcore.hardware.Servo;
+
+/**
+ * Wraps a {@link Servo} and drops position writes within {@code tolerance} of the last position actually sent. The ends
+ * of travel, 0 and 1, are always sent unless they were exactly the last position sent, so a slow sweep still finishes.
+ * Direction and range changes are only suppressed when they repeat the last sent value exactly.
+ */
+public class WriteCachingServo implements Servo {
+
+	public static final double DEFAULT_TOLERANCE = 0.001;
+
+	private final Servo servo;
+	private final double tolerance;
+
+	private boolean positionSent = false;
+	private double lastPosition;
+	private boolean rangeSent = false;
+	private double lastMin, lastMax;
+	private Direction lastDirection;
+
+	private long issued, suppressed;
+
+	public WriteCachingServo(final Servo servo) {
+		this(servo, DEFAULT_TOLERANCE);
+	}
+
+	public WriteCachingServo(final Servo servo, final double tolerance) {
+		if (tolerance < 0) throw new IllegalArgumentException("tolerance cannot be negative");
+
+		this.servo = servo;
+		this.tolerance = tolerance;
+	}
+
+	public Servo getServo() {
+		return servo;
+	}
+
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	public long getIssuedCount() {
+		return issued;
+	}
+
+	public long getSuppressedCount() {
+		return suppressed;
+	}
+
+	/** Forgets what was last sent, so the next write of every kind reaches the device. */
+	public void invalidate() {
+		positionSent = false;
+		rangeSent = false;
+		lastDirection = null;
+	}
+
+	public void resetCounts() {
+		issued = 0;
+		suppressed = 0;
+	}
+
+	@Override
+	public String toString() {
+		return servo.toString();
+	}
+
+	@Override
+	public void setPosition(final double position) {
+		if (positionSent && (position <= 0 || position >= 1 ? position == lastPosition : Math.abs(position - lastPosition) <= tolerance)) {
+			suppressed++;
+			return;
+		}
+
+		issued++;
+		positionSent = true;
+		lastPosition = position;
+		servo.setPosition(position);
+	}
+
+	@Override
+	public void scaleRange(final double min, final double max) {
+		if (rangeSent && min == lastMin && max == lastMax) {
+			suppressed++;
+			return;
+		}
+
+		issued++;
+		rangeSent = true;
+		lastMin = min;
+		lastMax = max;
+		servo.scaleRange(min, max);
+	}
+
+	@Override
+	public void setDirection(final Direction direction) {
+		if (direction == lastDirection) {
+			suppressed++;
+			return;
+		}
+
+		issued++;
+		lastDirection = direction;
+		servo.setDirection(direction);
+	}
+
+	@Override
+	public Direction getDirection() {
+		return servo.getDirection();
+	}
+
+	@Override
+	public int getPortNumber() {
+		return servo.getPortNumber();
+	}
+
+	@Override
+	public double getPosition() {
+		return servo.getPosition();
+	}
+
+}
@@ -0,0 +1,33 @@
+package org.firstinspires.ftc.robotcore.external.navigation;
+
+public enum DistanceUnit {
+	METER(1.0),
+	CM(0.01),
+	MM(0.001),
+	INCH(0.0254);
+
+	public static final double infinity = Double.MAX_VALUE;
+
+	private final double metersPerUnit;
+
+	private DistanceUnit(final double metersPerUnit) {
+		this.metersPerUnit = metersPerUnit;
+	}
+
+	public double fromUnit(final DistanceUnit unit, final double value) {
+		if (value == infinity) return infinity;
+		return value * unit.metersPerUnit / metersPerUnit;
+	}
+
+	public double toUnit(final DistanceUnit unit, final double value) {
+		return unit.fromUnit(this, value);
+	}
+
+	public double fromInches(final double inches) {
+		return fromUnit(INCH, inches);
+	}
+
+	public double toInches(final double value) {
+		return INCH.fromUnit(this, value);
+	}
+}